@@ -0,0 +1,108 @@
+package com.amazon.aws.pix.benchmark;
+
+import com.amazon.aws.pix.core.util.HeaderUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_PREFIX;
+
+/**
+ * Header projections done on each request, with streams and collectors ({@code stream*}) and with {@link HeaderUtil}.
+ *
+ * <pre>
+ * mvn -f proxy/pom.xml -Pbenchmark -pl core,benchmark package -DskipTests
+ * java -jar proxy/benchmark/target/benchmarks.jar HeaderBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HeaderBenchmark {
+
+    private Map<String, Object> camelHeaders;
+    private Map<String, List<String>> multiValueHeaders;
+
+    @Setup
+    public void setup() {
+        camelHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        camelHeaders.put("CamelHttpMethod", "POST");
+        camelHeaders.put("CamelHttpPath", "/api/v1/out/99999010/msgs");
+        camelHeaders.put("CamelHttpQuery", "");
+        camelHeaders.put("CamelHttpUri", "/api/v1/out/99999010/msgs");
+        camelHeaders.put("CamelHttpUrl", "http://localhost:9090/api/v1/out/99999010/msgs");
+        camelHeaders.put("CamelNettyChannelHandlerContext", new Object());
+        camelHeaders.put("CamelNettyLocalAddress", "/127.0.0.1:9090");
+        camelHeaders.put("CamelNettyRemoteAddress", "/127.0.0.1:51234");
+        camelHeaders.put("CamelNettyHttpRequest", new Object());
+        camelHeaders.put("Host", "localhost:9090");
+        camelHeaders.put("User-Agent", "pix-client/1.0");
+        camelHeaders.put("Accept", "*/*");
+        camelHeaders.put("Accept-Encoding", "gzip");
+        camelHeaders.put("Content-Type", "application/xml; charset=utf-8");
+        camelHeaders.put("Content-Length", "2048");
+        camelHeaders.put("Connection", "keep-alive");
+        camelHeaders.put("PI-ResourceId", "M0003816612345678901234567890123");
+        camelHeaders.put("pix-request-id", "7f1c2d3e-4b5a-6978-8a9b-0c1d2e3f4a5b");
+        camelHeaders.put("pix-tenant", "default");
+
+        multiValueHeaders = new HashMap<>();
+        camelHeaders.forEach((k, v) -> {
+            if (!k.startsWith("Camel")) multiValueHeaders.put(k, List.of(String.valueOf(v)));
+        });
+        multiValueHeaders.put("Accept", List.of("application/xml", "text/xml"));
+    }
+
+    @Benchmark
+    public Map<String, Object> streamWithoutCamel() {
+        return camelHeaders.entrySet().stream()
+                .filter(e -> !e.getKey().startsWith("Camel"))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Benchmark
+    public Map<String, Object> utilWithoutCamel() {
+        return HeaderUtil.withoutPrefix(camelHeaders, HeaderUtil.CAMEL_HEADER_PREFIX);
+    }
+
+    @Benchmark
+    public Map<String, Object> streamWithPix() {
+        return camelHeaders.entrySet().stream()
+                .filter(e -> e.getKey().startsWith(PIX_HEADER_PREFIX))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    @Benchmark
+    public Map<String, Object> utilWithPix() {
+        return HeaderUtil.withPrefix(camelHeaders, PIX_HEADER_PREFIX);
+    }
+
+    @Benchmark
+    public Map<String, String> streamJoin() {
+        return multiValueHeaders.entrySet().stream()
+                .collect(Collectors.toMap(e -> e.getKey(), e -> String.join(", ", e.getValue())));
+    }
+
+    @Benchmark
+    public Map<String, String> utilJoin() {
+        return HeaderUtil.join(multiValueHeaders);
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.amazon.aws.pix.benchmark;
+
+import com.amazon.aws.pix.core.concurrent.VirtualThreads;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serve a burst of {@code concurrency} requests, each signing (CPU) and then waiting on BACEN and the audit
+ * log (blocking I/O), on the platform worker pool ({@code pix.proxy.server.worker-pool-size}) and on virtual threads.
+ * With {@code pinned} the wait happens inside a {@code synchronized} block, as in the JCE providers, which keeps the
+ * virtual thread on its carrier. The {@code virtual} runs need JDK 21.
+ *
+ * <pre>
+ * mvn -f proxy/pom.xml -Pbenchmark -pl core,benchmark package -DskipTests
+ * java -jar proxy/benchmark/target/benchmarks.jar ThreadsBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ThreadsBenchmark {
+
+    private static final int WORKER_POOL_SIZE = 64;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"256", "4096"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean pinned;
+
+    @Param({"5"})
+    public long ioMillis;
+
+    @Param({"10000"})
+    public long cpuTokens;
+
+    private ExecutorService executor;
+    private Object[] locks;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = "virtual".equals(threads) ? VirtualThreads.newExecutor("benchmark") : Executors.newFixedThreadPool(WORKER_POOL_SIZE);
+        locks = new Object[concurrency];
+        for (int i = 0; i < concurrency; i++) locks[i] = new Object();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public void burst() throws Exception {
+        List<Future<?>> requests = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            Object lock = locks[i];
+            requests.add(executor.submit(() -> request(lock)));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+    }
+
+    /**
+     * @param lock one per request, so the requests don't contend for it.
+     */
+    private Void request(Object lock) throws InterruptedException {
+        Blackhole.consumeCPU(cpuTokens);
+        if (pinned) {
+            synchronized (lock) {
+                Thread.sleep(ioMillis);
+            }
+        } else {
+            Thread.sleep(ioMillis);
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.amazon.aws.pix.benchmark;
+
+import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
+import com.amazon.aws.pix.core.xml.XmlSignatureAlgorithm;
+import com.amazon.aws.pix.core.xml.XmlSigner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify throughput of each {@link XmlSignatureAlgorithm}, with a local software key.
+ *
+ * <pre>
+ * mvn -f proxy/pom.xml -Pbenchmark -pl core,benchmark package -DskipTests
+ * java -jar proxy/benchmark/target/benchmarks.jar XmlSignerBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class XmlSignerBenchmark {
+
+    @Param({"RSA_SHA256", "RSA_SHA512", "RSA_PSS_SHA256", "ECDSA_SHA256", "ECDSA_SHA384"})
+    public XmlSignatureAlgorithm algorithm;
+
+    @Param({"dict", "spi"})
+    public String route;
+
+    private XmlSigner xmlSigner;
+    private String xml;
+    private String xmlSigned;
+
+    @Setup
+    public void setup() throws Exception {
+        String resource = "EC".equals(algorithm.getKeyAlgorithm()) ? "security/client-ec.jks" : "security/client.jks";
+        KeyStore keyStore = KeyStoreUtil.getKeyStoreFromResource(resource, "secret");
+        KeyStore.PrivateKeyEntry entry = (KeyStore.PrivateKeyEntry) keyStore.getEntry("client", new KeyStore.PasswordProtection("secret".toCharArray()));
+        X509Certificate certificate = (X509Certificate) entry.getCertificate();
+
+        if ("spi".equals(route)) {
+            xmlSigner = new Iso20022XmlSigner(entry.getPrivateKey(), certificate, keyStore, algorithm);
+            xml = readResource("xml/pacs.008_CONTA_1_msg.xml");
+        } else {
+            xmlSigner = new XmlSigner(entry.getPrivateKey(), certificate, keyStore, algorithm);
+            xml = readResource("xml/test.xml");
+        }
+        xmlSigned = xmlSigner.sign(xml);
+    }
+
+    @Benchmark
+    public String sign() {
+        return xmlSigner.sign(xml);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return xmlSigner.verify(xmlSigned);
+    }
+
+    private String readResource(String name) throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
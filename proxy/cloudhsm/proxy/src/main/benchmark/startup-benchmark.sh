@@ -0,0 +1,58 @@
+#!/bin/bash
+
+# Measures the time to the first signed request and the RSS of the proxy.
+#
+# Usage (inside the proxy container, after the CloudHSM client is started):
+#   ./startup-benchmark.sh java -jar application.jar
+#   ./startup-benchmark.sh ./application -Djava.library.path=/opt/cloudhsm/lib
+
+RUNS=${RUNS:-5}
+REQUESTS=${REQUESTS:-100}
+PROXY_URL=${PROXY_URL:-http://localhost:8080}
+REQUEST_PATH=${REQUEST_PATH:-/api/v1/entries}
+REQUEST_BODY=${REQUEST_BODY:-$(dirname "$0")/request.xml}
+
+if [ $# -eq 0 ]
+then
+    echo "Usage: $0 <command> [args...]"
+    exit 1
+fi
+
+send() {
+    curl -s -o /dev/null -w '%{http_code}' -X POST -H 'Content-Type: application/xml' --data-binary @"$REQUEST_BODY" "$PROXY_URL$REQUEST_PATH"
+}
+
+rss() {
+    grep "$2" /proc/$1/status | awk '{print $2}'
+}
+
+echo "run,first_signed_request_ms,rss_kb,rss_after_${REQUESTS}_requests_kb,peak_rss_kb"
+
+for run in $(seq 1 $RUNS)
+do
+    start=$(date +%s%N)
+    "$@" &> /tmp/startup-benchmark-$run.log &
+    pid=$!
+
+    until [ "$(send)" != "000" ]
+    do
+        if ! kill -0 $pid 2> /dev/null
+        then
+            echo "Proxy exited, see /tmp/startup-benchmark-$run.log"
+            exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    first_rss=$(rss $pid VmRSS)
+
+    for i in $(seq 1 $REQUESTS)
+    do
+        send > /dev/null
+    done
+
+    echo "$run,$elapsed,$first_rss,$(rss $pid VmRSS),$(rss $pid VmHWM)"
+
+    kill $pid
+    wait $pid 2> /dev/null
+done
@@ -0,0 +1,38 @@
+#!/bin/bash
+
+# Measures the proxy throughput per core on the DICT (8080) and SPI (9090) listeners with wrk.
+#
+# Usage (from a load generator host with network access to the proxy):
+#   PROXY_HOST=10.0.0.10 PROXY_CPUS=2 ./throughput-benchmark.sh
+
+PROXY_HOST=${PROXY_HOST:-localhost}
+PROXY_CPUS=${PROXY_CPUS:-$(nproc)}
+THREADS=${THREADS:-4}
+CONNECTIONS=${CONNECTIONS:-64}
+DURATION=${DURATION:-60s}
+DICT_PATH=${DICT_PATH:-/api/v1/entries/11122233300}
+SPI_PATH=${SPI_PATH:-/api/v1/in/12345678/msgs}
+SPI_BODY=${SPI_BODY:-$(dirname "$0")/spi-request.xml}
+
+post_script=$(mktemp)
+cat > "$post_script" <<LUA
+wrk.method = "POST"
+wrk.headers["Content-Type"] = "application/xml"
+local f = io.open("$SPI_BODY", "r")
+wrk.body = f:read("*all")
+f:close()
+LUA
+
+run() {
+    local name=$1 url=$2
+    shift 2
+    local rps=$(wrk -t"$THREADS" -c"$CONNECTIONS" -d"$DURATION" --latency "$@" "$url" | tee /tmp/throughput-benchmark-$name.log | awk '/Requests\/sec/ {print $2}')
+    local p99=$(awk '$1 == "99%" {print $2}' /tmp/throughput-benchmark-$name.log)
+    echo "$name,$rps,$(echo "$rps / $PROXY_CPUS" | bc -l | xargs printf '%.0f'),$p99"
+}
+
+echo "listener,requests_per_sec,requests_per_sec_per_core,p99"
+run dict-get "http://$PROXY_HOST:8080$DICT_PATH"
+run spi-post "http://$PROXY_HOST:9090$SPI_PATH" -s "$post_script"
+
+rm -f "$post_script"
@@ -21,5 +21,32 @@ echo "safe sleeping... 10s"
 sleep 10
 echo "awake and resuming..."
 
+# JVM options: GC preset (PIX_GC=g1|zgc|shenandoah|none), heap sized from the container memory limit
+# (PIX_HEAP_PERCENTAGE) and an optional continuous JFR recording (PIX_JFR=true), which keeps up to PIX_JFR_MAXSIZE
+# of recording on disk and is dumped to PIX_JFR_FILE on exit or with jcmd
+java_options() {
+    local version=`java -version 2>&1 | head -1 | sed -E 's/.*"(1\.)?([0-9]+).*/\2/'`
+    local options="-XX:MaxRAMPercentage=${PIX_HEAP_PERCENTAGE:-75} -XX:InitialRAMPercentage=${PIX_HEAP_PERCENTAGE:-75} -XX:+ExitOnOutOfMemoryError"
+    case "${PIX_GC:-g1}" in
+        g1)
+            options="$options -XX:+UseG1GC -XX:MaxGCPauseMillis=${PIX_GC_PAUSE_MS:-50}"
+            ;;
+        zgc)
+            if [ "$version" -lt 15 ]; then options="$options -XX:+UnlockExperimentalVMOptions"; fi
+            options="$options -XX:+UseZGC"
+            if [ "$version" -ge 21 ]; then options="$options -XX:+ZGenerational"; fi
+            ;;
+        shenandoah)
+            if [ "$version" -lt 15 ]; then options="$options -XX:+UnlockExperimentalVMOptions"; fi
+            options="$options -XX:+UseShenandoahGC"
+            ;;
+    esac
+    if [ "${PIX_JFR:-false}" = "true" ]
+    then
+        options="$options -XX:StartFlightRecording=name=pix,settings=${PIX_JFR_SETTINGS:-default},disk=true,maxage=${PIX_JFR_MAXAGE:-30m},maxsize=${PIX_JFR_MAXSIZE:-256m},dumponexit=true,filename=${PIX_JFR_FILE:-/tmp/pix.jfr}"
+    fi
+    echo "$options $PIX_JAVA_OPTS"
+}
+
 # Start application
-java -jar application.jar
\ No newline at end of file
+exec java $(java_options) -jar application.jar
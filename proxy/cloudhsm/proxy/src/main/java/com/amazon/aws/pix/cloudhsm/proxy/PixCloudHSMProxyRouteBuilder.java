@@ -1,23 +1,63 @@
 package com.amazon.aws.pix.cloudhsm.proxy;
 
 import com.amazon.aws.pix.cloudhsm.proxy.camel.netty.NettyHttpClientInitializerFactory;
+import com.amazon.aws.pix.cloudhsm.proxy.camel.netty.NettyHttpServerInitializerFactory;
 import com.amazon.aws.pix.cloudhsm.proxy.camel.netty.NettySSLContextParameters;
+import com.amazon.aws.pix.cloudhsm.proxy.camel.netty.NettyTuning;
+import com.amazon.aws.pix.cloudhsm.proxy.config.ProxyConfig;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.BalanceRequestProcessor;
 import com.amazon.aws.pix.cloudhsm.proxy.processor.CaptureRequestProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.CircuitBreakerProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.CoalesceRequestProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.DeadlineProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.LimitRequestProcessor;
 import com.amazon.aws.pix.cloudhsm.proxy.processor.LogRequestResponseProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.ReleaseBalancerProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.ReleaseCircuitBreakerProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.ReleaseLimitProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.RetryRequestProcessor;
 import com.amazon.aws.pix.cloudhsm.proxy.processor.SignRequestProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.TenantProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.TimeRequestProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.TimeStageProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.processor.ValidateRequestProcessor;
 import com.amazon.aws.pix.cloudhsm.proxy.processor.VerifyResponseProcessor;
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.BalancedEndpoint;
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.Tenant;
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.TenantRegistry;
+import com.amazon.aws.pix.cloudhsm.proxy.warmup.Warmup;
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import com.amazon.aws.pix.core.concurrent.CircuitBreaker;
+import com.amazon.aws.pix.core.concurrent.CircuitBreakerOpenException;
+import com.amazon.aws.pix.core.concurrent.LatencyTracker;
+import com.amazon.aws.pix.core.concurrent.VirtualThreads;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.AddressAllowlist;
 import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.util.TenantUtil;
+import com.amazon.aws.pix.core.xml.Iso20022Validator;
 import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
 import com.amazon.aws.pix.core.xml.XmlSigner;
 import com.cavium.cfm2.CFM2Exception;
 import com.cavium.cfm2.LoginManager;
+import io.netty.handler.codec.TooLongFrameException;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslProvider;
+import io.netty.handler.timeout.ReadTimeoutException;
 import lombok.AllArgsConstructor;
+import lombok.SneakyThrows;
+import org.apache.camel.Endpoint;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangeTimedOutException;
+import org.apache.camel.ProducerTemplate;
 import org.apache.camel.builder.EndpointConsumerBuilder;
 import org.apache.camel.builder.EndpointProducerBuilder;
 import org.apache.camel.builder.endpoint.EndpointRouteBuilder;
+import org.apache.camel.model.ChoiceDefinition;
+import org.apache.camel.model.ProcessorDefinition;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.json.JSONObject;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
@@ -31,16 +71,26 @@ import software.amazon.awssdk.services.ssm.model.GetParametersByPathResponse;
 import software.amazon.awssdk.services.ssm.model.Parameter;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
 import javax.net.ssl.SSLException;
 import java.io.IOException;
+import java.net.InetAddress;
+import java.net.URI;
 import java.security.*;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -49,6 +99,9 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
     @ConfigProperty(name = "aws.default.region")
     String awsDefaultRegion;
 
+    @Inject
+    ProxyConfig config;
+
     @AllArgsConstructor
     enum Secret {
         CloudHSMSecret("HSM_USER", "HSM_PASSWORD");
@@ -73,70 +126,203 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
         BcbDictEndpoint,
         BcbSpiEndpoint,
         SpiAuditStream,
-        DictAuditStream;
+        DictAuditStream,
+        AllowedCallers;
 
         public static final String PATH = "/pix/proxy/cloudhsm/";
 
         public String getParamName() {
             return String.format("%s%s", PATH, this.name());
         }
+
+        public String getParamName(String tenant) {
+            return String.format("%s%s%s/%s", PATH, TenantUtil.TENANTS_PATH, tenant, this.name());
+        }
     }
 
     private Map<String, String> parameters;
+    private Set<String> tenantIds;
     private KeyStore cloudHsmKeyStore;
-    private SslContext sslContext;
-    private XmlSigner xmlSigner;
-    private Iso20022XmlSigner iso20022XmlSigner;
     private FirehoseClient firehoseClient;
+    private NettyTuning nettyTuning;
+    private TenantRegistry tenants;
+    private ExecutorService routeExecutor;
 
     @PostConstruct
     void init() throws Exception {
+        nettyTuning = new NettyTuning(config);
         loadParameters();
         loadCloudHsmKeyStore();
-        createSslContext();
-        createXmlSigners();
         createFirehoseClient();
+        tenants = new TenantRegistry(tenantIds.stream().collect(Collectors.toMap(Function.identity(), this::getAllowedCallers)), this::createTenant);
+
+        if (config.isVirtualThreadsEnabled()) {
+            routeExecutor = VirtualThreads.newExecutor("pix-route");
+            VirtualThreads.monitorPinning(Duration.ofMillis(config.getVirtualThreadsPinnedThreshold()));
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        nettyTuning.shutdown();
+        if (routeExecutor != null) routeExecutor.shutdownNow();
     }
 
     @Override
     public void configure() throws Exception {
-        getContext().getRegistry().bind("nettyHttpClientInitializerFactory", new NettyHttpClientInitializerFactory());
-
-        configure(8080, xmlSigner, getParameter(Param.BcbDictEndpoint), getParameter(Param.DictAuditStream));
-        configure(9090, iso20022XmlSigner, getParameter(Param.BcbSpiEndpoint), getParameter(Param.SpiAuditStream));
+        onException(TooLongFrameException.class)
+                .handled(true)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(502))
+                .transform(constant("Response too large"));
+        onException(ReadTimeoutException.class, ExchangeTimedOutException.class)
+                .handled(true)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(504))
+                .transform(constant("Upstream timeout"));
+        onException(CircuitBreakerOpenException.class)
+                .handled(true)
+                .setHeader(Exchange.HTTP_RESPONSE_CODE, constant(503))
+                .transform(constant("Circuit breaker open"));
+
+        AdaptiveConcurrencyLimiter dictLimiter = new AdaptiveConcurrencyLimiter("dict", config.getDictLimitInitial(), config.getDictLimitMin(), config.getDictLimitMax());
+        AdaptiveConcurrencyLimiter spiLimiter = new AdaptiveConcurrencyLimiter("spi", config.getSpiLimitInitial(), config.getSpiLimitMin(), config.getSpiLimitMax());
+
+        ProducerTemplate producerTemplate = getContext().createProducerTemplate();
+        RetryRequestProcessor dictRetrier = config.getDictMaxRetries() > 0 || config.isDictHedgeEnabled()
+                ? new RetryRequestProcessor("dict", producerTemplate, upstreamUri(8080), config.getDictMaxRetries(),
+                        config.isDictHedgeEnabled() ? new LatencyTracker("dict", config.getDictHedgePercentile(), config.getDictHedgeWindow()) : null)
+                : null;
+
+        CoalesceRequestProcessor dictCoalescer = config.isDictCoalescingEnabled()
+                ? new CoalesceRequestProcessor("dict", Duration.ofMillis(config.getDictCoalescingCacheTtl()),
+                        dictRetrier != null ? dictRetrier::send : exchange -> producerTemplate.asyncSend(upstreamUri(8080), exchange))
+                : null;
+
+        ValidateRequestProcessor spiValidator = config.isSpiValidationEnabled()
+                ? new ValidateRequestProcessor("spi", new Iso20022Validator(config.getSpiValidationMaxBytes(), config.getSpiValidationRoots(), config.getSpiValidationNamespacePrefix()))
+                : null;
+
+        configure("dict", 8080, config.getDictMaxRequestBytes(), Duration.ofMillis(config.getDictTimeout()), Tenant::getXmlSigner, dictLimiter, null, dictCoalescer, dictRetrier, Tenant::getDictEndpoint, Tenant::getDictAuditStream);
+        configure("spi", 9090, config.getSpiMaxRequestBytes(), Duration.ofMillis(config.getSpiTimeout()), Tenant::getIso20022XmlSigner, spiLimiter, spiValidator, null, null, Tenant::getSpiEndpoint, Tenant::getSpiAuditStream);
+
+        Warmup warmup = config.isWarmupEnabled() ? createWarmup(tenants.getDefault(), producerTemplate) : null;
+        if (warmup != null) {
+            getContext().addStartupListener((context, alreadyStarted) ->
+                    context.getExecutorServiceManager().newSingleThreadExecutor(this, "pix-warmup").submit(warmup));
+        }
 
-        from(checkEndpoint()).transform(constant("OK"));
+        from(checkEndpoint())
+                .choice()
+                    .when(exchange -> warmup == null || warmup.isReady()).transform(constant("OK"))
+                    .otherwise().setHeader(Exchange.HTTP_RESPONSE_CODE, constant(503)).transform(constant("Warming up"))
+                .end();
+        from(metricsEndpoint())
+                .setHeader("Content-Type", constant("application/json"))
+                .process(exchange -> exchange.getIn().setBody(Metrics.toJson()));
     }
 
-    private void configure(int port, XmlSigner xmlSigner, String endpoint, String streamName) {
-        from(proxyEndpoint(port))
-                .transform(body().convertToString())
+    private void configure(String name, int port, int maxRequestBytes, Duration timeout, Function<Tenant, XmlSigner> xmlSigner, AdaptiveConcurrencyLimiter limiter, ValidateRequestProcessor validator,
+                           CoalesceRequestProcessor coalescer, RetryRequestProcessor retrier, Function<Tenant, BalancedEndpoint> endpoint, Function<Tenant, String> streamName) {
+        ProcessorDefinition<?> upstream = from(upstreamUri(port))
+                .process(DeadlineProcessor.apply())
+                .process(new CircuitBreakerProcessor(name, tenant -> new CircuitBreaker(String.format("%s.%s", name, tenant),
+                        config.getBreakerFailureRate(), config.getBreakerWindow(), config.getBreakerMinimumCalls(), Duration.ofMillis(config.getBreakerOpen()))))
+                .process(new BalanceRequestProcessor())
+                .process(TimeStageProcessor.start(RequestTiming.UPSTREAM))
+                .recipientList(exchangeProperty(BalanceRequestProcessor.ENDPOINT_PROPERTY))
+                .process(TimeStageProcessor.stop(RequestTiming.UPSTREAM));
+
+        // the BCB response arrives on the Netty event loop, the verification and the audit log block
+        if (routeExecutor != null) upstream = upstream.threads().executorService(routeExecutor);
+
+        upstream.process(new ReleaseCircuitBreakerProcessor())
+                .process(new ReleaseBalancerProcessor())
+                .process(new VerifyResponseProcessor(xmlSigner));
+
+        ProcessorDefinition<?> route = from(proxyEndpoint(name, port, maxRequestBytes));
+        if (routeExecutor != null) route = route.threads().executorService(routeExecutor);
+
+        route.process(new TimeRequestProcessor(String.format("pix-proxy %s", name)))
+                .process(DeadlineProcessor.start(timeout))
+                .process(new TenantProcessor(tenants, endpoint))
+                // before any HSM work, so an overloaded proxy sheds the request without signing it
+                .process(new LimitRequestProcessor(limiter, config.getLimitRejectedStatusCode()));
+
+        if (validator != null) {
+            route.process(validator);
+        }
+
+        route.transform(body().convertToString())
                 .process(new SignRequestProcessor(xmlSigner))
                 .process(new CaptureRequestProcessor())
-                .to(bcbEndpoint(endpoint))
-                .transform(body().convertToString())
-                .process(new VerifyResponseProcessor(xmlSigner))
-                .process(new LogRequestResponseProcessor(firehoseClient, streamName));
+                .process(LimitRequestProcessor::startSample);
+
+        if (coalescer != null || retrier != null) {
+            ChoiceDefinition choice = route.choice();
+            if (coalescer != null) choice.when(coalescer::isCoalescable).process(coalescer);
+            if (retrier != null) choice.when(retrier::isRetryable).process(retrier);
+            choice.otherwise().to(upstreamUri(port)).end();
+        } else {
+            route.to(upstreamUri(port));
+        }
+
+        // after the last retry or hedged request, which all run under the same permit
+        route.process(new ReleaseLimitProcessor())
+                .process(new LogRequestResponseProcessor(firehoseClient, streamName, config.isTimingHeaderEnabled()));
+    }
 
+    private String upstreamUri(int port) {
+        return String.format("direct:bcb-%d", port);
     }
 
-    private EndpointConsumerBuilder proxyEndpoint(int port) {
+    private EndpointConsumerBuilder proxyEndpoint(String name, int port, int maxRequestBytes) {
         return nettyHttp(String.format("http://0.0.0.0:%d", port))
                 .matchOnUriPrefix(true)
-                .advanced().nativeTransport(true);
+                .advanced().nativeTransport(true)
+                .bossGroup(nettyTuning.getBossGroup())
+                .workerGroup(nettyTuning.getWorkerGroup())
+                .chunkedMaxContentLength(maxRequestBytes)
+                .serverInitializerFactory(new NettyHttpServerInitializerFactory(nettyTuning, name));
+    }
+
+    /**
+     * The BCB endpoint, {@code host:port}, spread over the addresses of the host.
+     */
+    private BalancedEndpoint balancedBcbEndpoint(String name, String tenant, String endpoint, SslContext sslContext, int maxResponseBytes) {
+        URI uri = URI.create("https://" + endpoint);
+        String port = uri.getPort() < 0 ? "" : ":" + uri.getPort();
+        UpstreamBalancer balancer = new UpstreamBalancer(
+                String.format("%s.%s", name, tenant),
+                uri.getHost(),
+                config.isBalancerEnabled() ? InetAddress::getAllByName : host -> new InetAddress[0],
+                config.getBalancerStrategy(),
+                config.isBalancerEnabled() ? Duration.ofMillis(config.getBalancerRefresh()) : Duration.ZERO,
+                config.getBalancerEjectAfter(),
+                config.getBalancerSlowFactor(),
+                Duration.ofMillis(config.getBalancerEjectDuration()));
+
+        return new BalancedEndpoint(balancer, address -> bcbEndpoint(name, endpoint, address + port, sslContext, maxResponseBytes).resolve(getContext()), this::removeEndpoint);
     }
 
-    private EndpointProducerBuilder bcbEndpoint(String endpoint) {
+    @SneakyThrows
+    private void removeEndpoint(Endpoint endpoint) {
+        getContext().removeEndpoint(endpoint);
+    }
+
+    private EndpointProducerBuilder bcbEndpoint(String name, String endpoint, String address, SslContext sslContext, int maxResponseBytes) {
         NettySSLContextParameters nettySSLContextParameters = new NettySSLContextParameters();
         nettySSLContextParameters.setSslContext(sslContext);
+        nettySSLContextParameters.setVirtualHost(endpoint);
 
-        return nettyHttp("https://" + endpoint)
+        return nettyHttp("https://" + address)
                 .bridgeEndpoint(true)
                 .throwExceptionOnFailure(false)
                 .ssl(true)
                 .enabledProtocols("TLSv1.2")
                 .sslContextParameters(nettySSLContextParameters)
-                .advanced().nativeTransport(true);
+                .advanced().nativeTransport(true)
+                .workerGroup(nettyTuning.getWorkerGroup())
+                .clientInitializerFactory(new NettyHttpClientInitializerFactory(nettyTuning, name))
+                .doSetProperty("chunkedMaxContentLength", maxResponseBytes);
     }
 
     private EndpointConsumerBuilder checkEndpoint() {
@@ -144,6 +330,11 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
                 .advanced().nativeTransport(true);
     }
 
+    private EndpointConsumerBuilder metricsEndpoint() {
+        return nettyHttp("http://0.0.0.0:7070/metrics")
+                .advanced().nativeTransport(true);
+    }
+
     private void loadParameters() {
         SsmClient ssmClient = SsmClient.builder()
                 .region(Region.of(awsDefaultRegion))
@@ -157,6 +348,11 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
             parameters.putAll(response.parameters().stream().collect(Collectors.toMap(Parameter::name, Parameter::value)));
             nextToken = response.nextToken();
         } while (nextToken != null);
+
+        tenantIds = parameters.keySet().stream()
+                .map(name -> TenantUtil.getTenantFromParameterName(Param.PATH, name))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
     }
 
     private void loadCloudHsmKeyStore() throws IOException, CFM2Exception, KeyStoreException, CertificateException, NoSuchAlgorithmException {
@@ -177,12 +373,52 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
         cloudHsmKeyStore.load(null, null);
     }
 
-    private void createSslContext() throws SSLException, UnrecoverableKeyException, NoSuchAlgorithmException, KeyStoreException {
-        PrivateKey signatureKey = (PrivateKey) cloudHsmKeyStore.getKey(getParameter(Param.MtlsKeyLabel), null);
-        Collection<X509Certificate> certificates = KeyStoreUtil.getCertificates(getParameter(Param.MtlsCertificate));
-        Collection<X509Certificate> trustCertificates = KeyStoreUtil.getCertificates(getParameter(Param.BcbMtlsCertificate));
+    @SneakyThrows
+    private Tenant createTenant(String tenant) {
+        SslContext sslContext = createSslContext(tenant);
+
+        PrivateKey signatureKey = (PrivateKey) cloudHsmKeyStore.getKey(getParameter(tenant, Param.SignatureKeyLabel), null);
+        X509Certificate signatureKeyCertificate = KeyStoreUtil.getCertificate(getParameter(tenant, Param.SignatureCertificate));
+        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", getParameter(tenant, Param.BcbSignatureCertificate));
+
+        return new Tenant(
+                tenant,
+                new XmlSigner(signatureKey, signatureKeyCertificate, trustStore, config.getDictSignatureAlgorithm()),
+                new Iso20022XmlSigner(signatureKey, signatureKeyCertificate, trustStore, config.getSpiSignatureAlgorithm()),
+                balancedBcbEndpoint("dict", tenant, getParameter(tenant, Param.BcbDictEndpoint), sslContext, config.getDictMaxResponseBytes()),
+                balancedBcbEndpoint("spi", tenant, getParameter(tenant, Param.BcbSpiEndpoint), sslContext, config.getSpiMaxResponseBytes()),
+                getParameter(tenant, Param.DictAuditStream),
+                getParameter(tenant, Param.SpiAuditStream)
+        );
+    }
 
-        sslContext = SslContextBuilder.forClient()
+    /**
+     * The samples are verified with the proxy certificate, as BACEN does, since the tenant signers only trust BACEN.
+     */
+    @SneakyThrows
+    private Warmup createWarmup(Tenant tenant, ProducerTemplate producerTemplate) {
+        PrivateKey signatureKey = (PrivateKey) cloudHsmKeyStore.getKey(getParameter(tenant.getId(), Param.SignatureKeyLabel), null);
+        X509Certificate signatureKeyCertificate = KeyStoreUtil.getCertificate(getParameter(tenant.getId(), Param.SignatureCertificate));
+        KeyStore trustStore = KeyStoreUtil.generateTrustStore("proxy", getParameter(tenant.getId(), Param.SignatureCertificate));
+
+        return new Warmup(
+                producerTemplate,
+                List.of(
+                        new Warmup.Round(tenant.getXmlSigner(), new XmlSigner(signatureKey, signatureKeyCertificate, trustStore, config.getDictSignatureAlgorithm()), "priming/dict.xml"),
+                        new Warmup.Round(tenant.getIso20022XmlSigner(), new Iso20022XmlSigner(signatureKey, signatureKeyCertificate, trustStore, config.getSpiSignatureAlgorithm()), "priming/spi.xml")),
+                List.of(tenant.getDictEndpoint(), tenant.getSpiEndpoint()),
+                Duration.ofMillis(config.getWarmupMaxDuration()),
+                config.getWarmupMaxRounds(),
+                config.getWarmupConnections(),
+                config.getWarmupPath());
+    }
+
+    private SslContext createSslContext(String tenant) throws SSLException, UnrecoverableKeyException, NoSuchAlgorithmException, KeyStoreException {
+        PrivateKey signatureKey = (PrivateKey) cloudHsmKeyStore.getKey(getParameter(tenant, Param.MtlsKeyLabel), null);
+        Collection<X509Certificate> certificates = KeyStoreUtil.getCertificates(getParameter(tenant, Param.MtlsCertificate));
+        Collection<X509Certificate> trustCertificates = KeyStoreUtil.getCertificates(getParameter(tenant, Param.BcbMtlsCertificate));
+
+        return SslContextBuilder.forClient()
                 .sslProvider(SslProvider.OPENSSL)
                 .keyManager(signatureKey, certificates)
                 .trustManager(trustCertificates)
@@ -190,15 +426,6 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
                 .build();
     }
 
-    private void createXmlSigners() throws UnrecoverableKeyException, NoSuchAlgorithmException, KeyStoreException {
-        PrivateKey signatureKey = (PrivateKey) cloudHsmKeyStore.getKey(getParameter(Param.SignatureKeyLabel), null);
-        X509Certificate signatureKeyCertificate = KeyStoreUtil.getCertificate(getParameter(Param.SignatureCertificate));
-        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", getParameter(Param.BcbSignatureCertificate));
-
-        xmlSigner = new XmlSigner(signatureKey, signatureKeyCertificate, trustStore);
-        iso20022XmlSigner = new Iso20022XmlSigner(signatureKey, signatureKeyCertificate, trustStore);
-    }
-
     private void createFirehoseClient() {
         firehoseClient = FirehoseClient.builder()
                 .region(Region.of(awsDefaultRegion))
@@ -206,7 +433,18 @@ public class PixCloudHSMProxyRouteBuilder extends EndpointRouteBuilder {
                 .build();
     }
 
-    private String getParameter(Param param) {
+    /**
+     * Only the tenant's own parameter, the global one does not apply.
+     */
+    private AddressAllowlist getAllowedCallers(String tenant) {
+        return AddressAllowlist.parse(parameters.get(Param.AllowedCallers.getParamName(tenant)));
+    }
+
+    private String getParameter(String tenant, Param param) {
+        if (!TenantUtil.DEFAULT_TENANT.equals(tenant)) {
+            String value = parameters.get(param.getParamName(tenant));
+            if (value != null) return value;
+        }
         return Optional.ofNullable(parameters.get(param.getParamName()))
                 .orElseThrow(() -> new IllegalStateException(String.format("Parameter %s not found!", param.getParamName())));
     }
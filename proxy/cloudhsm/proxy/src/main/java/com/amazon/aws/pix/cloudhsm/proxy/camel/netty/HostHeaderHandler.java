@@ -0,0 +1,27 @@
+package com.amazon.aws.pix.cloudhsm.proxy.camel.netty;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOutboundHandlerAdapter;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpRequest;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Camel sets the {@code Host} header from the endpoint URI, which is an IP address for the balanced BCB endpoints.
+ */
+@ChannelHandler.Sharable
+@RequiredArgsConstructor
+public class HostHeaderHandler extends ChannelOutboundHandlerAdapter {
+
+    private final String host;
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof HttpRequest) {
+            ((HttpRequest) msg).headers().set(HttpHeaderNames.HOST, host);
+        }
+        ctx.write(msg, promise);
+    }
+}
@@ -1,10 +1,10 @@
 package com.amazon.aws.pix.cloudhsm.proxy.camel.netty;
 
+import com.amazon.aws.pix.core.metrics.Metrics;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelPipeline;
 import io.netty.handler.codec.http.HttpClientCodec;
-import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.timeout.ReadTimeoutHandler;
@@ -18,6 +18,7 @@ import org.apache.camel.component.netty.http.NettyHttpProducer;
 import org.apache.camel.component.netty.http.handlers.HttpClientChannelHandler;
 import org.apache.camel.component.netty.http.handlers.HttpInboundStreamHandler;
 import org.apache.camel.component.netty.http.handlers.HttpOutboundStreamHandler;
+import org.apache.camel.support.jsse.SSLContextParameters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,13 +36,22 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
     protected NettyHttpConfiguration configuration;
     private NettyHttpProducer producer;
     private SslContext sslContext;
+    private NettyTuning tuning;
+    private String name;
 
     public NettyHttpClientInitializerFactory() {
         // default constructor needed
     }
 
-    public NettyHttpClientInitializerFactory(NettyHttpProducer nettyProducer) {
+    public NettyHttpClientInitializerFactory(NettyTuning tuning, String name) {
+        this.tuning = tuning;
+        this.name = name;
+    }
+
+    public NettyHttpClientInitializerFactory(NettyHttpProducer nettyProducer, NettyTuning tuning, String name) {
         this.producer = nettyProducer;
+        this.tuning = tuning;
+        this.name = name;
         try {
             this.sslContext = createSSLContext(producer);
         } catch (Exception e) {
@@ -56,11 +66,15 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
 
     @Override
     public ClientInitializerFactory createPipelineFactory(NettyProducer nettyProducer) {
-        return new NettyHttpClientInitializerFactory((NettyHttpProducer) nettyProducer);
+        return new NettyHttpClientInitializerFactory((NettyHttpProducer) nettyProducer, tuning, name);
     }
 
     @Override
     protected void initChannel(Channel channel) throws Exception {
+        if (tuning != null) {
+            tuning.tune(channel);
+        }
+
         // create a new pipeline
         ChannelPipeline pipeline = channel.pipeline();
 
@@ -74,6 +88,11 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
 
         pipeline.addLast("http", new HttpClientCodec());
 
+        String virtualHost = getVirtualHost();
+        if (virtualHost != null) {
+            pipeline.addLast("host", new HostHeaderHandler(virtualHost));
+        }
+
         List<ChannelHandler> encoders = producer.getConfiguration().getEncoders();
         for (int x = 0; x < encoders.size(); x++) {
             ChannelHandler encoder = encoders.get(x);
@@ -96,7 +115,7 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
         if (configuration.isDisableStreamCache()) {
             pipeline.addLast("inbound-streamer", new HttpInboundStreamHandler());
         }
-        pipeline.addLast("aggregator", new HttpObjectAggregator(configuration.getChunkedMaxContentLength()));
+        pipeline.addLast("aggregator", new SizeLimitedHttpObjectAggregator(configuration.getChunkedMaxContentLength(), Metrics.counter(String.format("pix.size.%s.response.rejected", name))));
         pipeline.addLast("outbound-streamer", new HttpOutboundStreamHandler());
 
         if (producer.getConfiguration().getRequestTimeout() > 0) {
@@ -133,7 +152,8 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
         if (producer.getConfiguration().getSslHandler() != null) {
             return producer.getConfiguration().getSslHandler();
         } else if (sslContext != null) {
-            URI uri = new URI(producer.getEndpoint().getEndpointUri());
+            String virtualHost = getVirtualHost();
+            URI uri = new URI(virtualHost != null ? "https://" + virtualHost : producer.getEndpoint().getEndpointUri());
             SSLEngine engine = sslContext.newEngine(channel.alloc(), uri.getHost(), uri.getPort());
             engine.setUseClientMode(true);
             SSLParameters sslParameters = engine.getSSLParameters();
@@ -149,4 +169,9 @@ public class NettyHttpClientInitializerFactory extends ClientInitializerFactory
         return null;
     }
 
+    private String getVirtualHost() {
+        SSLContextParameters sslContextParameters = producer.getConfiguration().getSslContextParameters();
+        return sslContextParameters instanceof NettySSLContextParameters ? ((NettySSLContextParameters) sslContextParameters).getVirtualHost() : null;
+    }
+
 }
@@ -0,0 +1,45 @@
+package com.amazon.aws.pix.cloudhsm.proxy.camel.netty;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import io.netty.channel.Channel;
+import org.apache.camel.component.netty.NettyConsumer;
+import org.apache.camel.component.netty.ServerInitializerFactory;
+import org.apache.camel.component.netty.http.HttpServerInitializerFactory;
+import org.apache.camel.component.netty.http.NettyHttpConsumer;
+
+public class NettyHttpServerInitializerFactory extends HttpServerInitializerFactory {
+
+    private final NettyTuning tuning;
+    private final String name;
+    private NettyHttpConsumer consumer;
+
+    public NettyHttpServerInitializerFactory(NettyTuning tuning, String name) {
+        this.tuning = tuning;
+        this.name = name;
+    }
+
+    public NettyHttpServerInitializerFactory(NettyHttpConsumer consumer, NettyTuning tuning, String name) {
+        super(consumer);
+        this.consumer = consumer;
+        this.tuning = tuning;
+        this.name = name;
+    }
+
+    @Override
+    public ServerInitializerFactory createPipelineFactory(NettyConsumer consumer) {
+        return new NettyHttpServerInitializerFactory((NettyHttpConsumer) consumer, tuning, name);
+    }
+
+    @Override
+    protected void initChannel(Channel channel) throws Exception {
+        tuning.tune(channel);
+        super.initChannel(channel);
+
+        if (channel.pipeline().get("aggregator") != null) {
+            channel.pipeline().replace("aggregator", "aggregator", new SizeLimitedHttpObjectAggregator(
+                    consumer.getConfiguration().getChunkedMaxContentLength(),
+                    Metrics.counter(String.format("pix.size.%s.request.rejected", name))));
+        }
+    }
+
+}
@@ -9,4 +9,10 @@ public class NettySSLContextParameters extends SSLContextParameters {
 
     private SslContext sslContext;
 
+    /**
+     * The {@code host:port} the connections are meant for, when the endpoint points to one of its addresses: it sets
+     * the SNI host name and the {@code Host} header.
+     */
+    private String virtualHost;
+
 }
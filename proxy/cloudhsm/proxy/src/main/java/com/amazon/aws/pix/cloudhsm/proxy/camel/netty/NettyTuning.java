@@ -0,0 +1,72 @@
+package com.amazon.aws.pix.cloudhsm.proxy.camel.netty;
+
+import com.amazon.aws.pix.cloudhsm.proxy.config.ProxyConfig;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import lombok.Getter;
+import org.apache.camel.component.netty.NettyServerBossPoolBuilder;
+import org.apache.camel.component.netty.NettyWorkerPoolBuilder;
+
+/**
+ * Netty settings shared by the proxy listeners and the BCB clients, including a single boss and worker event loop group.
+ */
+@Getter
+public class NettyTuning {
+
+    private final EventLoopGroup bossGroup;
+    private final EventLoopGroup workerGroup;
+    private final ByteBufAllocator allocator;
+    private final WriteBufferWaterMark writeBufferWaterMark;
+
+    public NettyTuning(ProxyConfig config) {
+        bossGroup = config.isNettyReusePort() ? new ReusePortBossGroup(config.getNettyBossThreads()) : new NettyServerBossPoolBuilder()
+                .withName("PixNettyBoss")
+                .withBossCount(config.getNettyBossThreads())
+                .withNativeTransport(true)
+                .build();
+        workerGroup = new NettyWorkerPoolBuilder()
+                .withName("PixNettyWorker")
+                .withWorkerCount(config.getNettyWorkerThreads())
+                .withNativeTransport(true)
+                .build();
+        allocator = config.isNettyPooledAllocator() ? PooledByteBufAllocator.DEFAULT : UnpooledByteBufAllocator.DEFAULT;
+        writeBufferWaterMark = new WriteBufferWaterMark(config.getNettyWriteBufferLowWaterMark(), config.getNettyWriteBufferHighWaterMark());
+    }
+
+    public void tune(Channel channel) {
+        channel.config().setAllocator(allocator);
+        channel.config().setWriteBufferWaterMark(writeBufferWaterMark);
+    }
+
+    public void shutdown() {
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+
+    /**
+     * Sets SO_REUSEPORT on the listening sockets as they are registered, before they are bound. camel-netty-http binds
+     * the listeners with its own server bootstrap, which hands the endpoint options to the accepted connections only.
+     */
+    private static class ReusePortBossGroup extends EpollEventLoopGroup {
+
+        ReusePortBossGroup(int threads) {
+            super(threads, new DefaultThreadFactory("PixNettyBoss"));
+        }
+
+        @Override
+        public ChannelFuture register(Channel channel) {
+            if (channel instanceof ServerChannel) channel.config().setOption(EpollChannelOption.SO_REUSEPORT, true);
+            return super.register(channel);
+        }
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.amazon.aws.pix.cloudhsm.proxy.camel.netty;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.HttpMessage;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the messages rejected by the aggregator. Requests above the limit are answered with 413 as soon as the
+ * Content-Length (or the received chunks) exceed it, responses above the limit fail with TooLongFrameException.
+ */
+public class SizeLimitedHttpObjectAggregator extends HttpObjectAggregator {
+
+    private final LongAdder rejected;
+
+    public SizeLimitedHttpObjectAggregator(int maxContentLength, LongAdder rejected) {
+        super(maxContentLength);
+        this.rejected = rejected;
+    }
+
+    @Override
+    protected void handleOversizedMessage(ChannelHandlerContext ctx, HttpMessage oversized) throws Exception {
+        rejected.increment();
+        super.handleOversizedMessage(ctx, oversized);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.amazon.aws.pix.cloudhsm.proxy.config;
+
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import com.amazon.aws.pix.core.xml.XmlSignatureAlgorithm;
+import lombok.Getter;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.inject.Singleton;
+import java.util.List;
+
+@Getter
+@Singleton
+public class ProxyConfig {
+
+    @ConfigProperty(name = "pix.proxy.limit.rejected-status-code")
+    int limitRejectedStatusCode;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.initial")
+    int dictLimitInitial;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.min")
+    int dictLimitMin;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.max")
+    int dictLimitMax;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.initial")
+    int spiLimitInitial;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.min")
+    int spiLimitMin;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.max")
+    int spiLimitMax;
+
+    @ConfigProperty(name = "pix.proxy.coalescing.dict.enabled")
+    boolean dictCoalescingEnabled;
+
+    @ConfigProperty(name = "pix.proxy.coalescing.dict.cache-ttl-ms")
+    long dictCoalescingCacheTtl;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.timeout-ms")
+    long dictTimeout;
+
+    @ConfigProperty(name = "pix.proxy.resilience.spi.timeout-ms")
+    long spiTimeout;
+
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.failure-rate")
+    double breakerFailureRate;
+
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.window")
+    int breakerWindow;
+
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.minimum-calls")
+    int breakerMinimumCalls;
+
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.open-ms")
+    long breakerOpen;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.max-retries")
+    int dictMaxRetries;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.enabled")
+    boolean dictHedgeEnabled;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.percentile")
+    double dictHedgePercentile;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.window")
+    int dictHedgeWindow;
+
+    @ConfigProperty(name = "pix.proxy.balancer.enabled")
+    boolean balancerEnabled;
+
+    @ConfigProperty(name = "pix.proxy.balancer.strategy")
+    UpstreamBalancer.Strategy balancerStrategy;
+
+    @ConfigProperty(name = "pix.proxy.balancer.refresh-ms")
+    long balancerRefresh;
+
+    @ConfigProperty(name = "pix.proxy.balancer.eject.after")
+    int balancerEjectAfter;
+
+    @ConfigProperty(name = "pix.proxy.balancer.eject.slow-factor")
+    double balancerSlowFactor;
+
+    @ConfigProperty(name = "pix.proxy.balancer.eject.duration-ms")
+    long balancerEjectDuration;
+
+    @ConfigProperty(name = "pix.proxy.signature.dict.algorithm")
+    XmlSignatureAlgorithm dictSignatureAlgorithm;
+
+    @ConfigProperty(name = "pix.proxy.signature.spi.algorithm")
+    XmlSignatureAlgorithm spiSignatureAlgorithm;
+
+    @ConfigProperty(name = "pix.proxy.size.dict.max-request-bytes")
+    int dictMaxRequestBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.dict.max-response-bytes")
+    int dictMaxResponseBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.spi.max-request-bytes")
+    int spiMaxRequestBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.spi.max-response-bytes")
+    int spiMaxResponseBytes;
+
+    @ConfigProperty(name = "pix.proxy.validation.spi.enabled")
+    boolean spiValidationEnabled;
+
+    @ConfigProperty(name = "pix.proxy.validation.spi.max-bytes")
+    int spiValidationMaxBytes;
+
+    @ConfigProperty(name = "pix.proxy.validation.spi.roots")
+    List<String> spiValidationRoots;
+
+    @ConfigProperty(name = "pix.proxy.validation.spi.namespace-prefix")
+    String spiValidationNamespacePrefix;
+
+    @ConfigProperty(name = "pix.proxy.timing.header.enabled")
+    boolean timingHeaderEnabled;
+
+    @ConfigProperty(name = "pix.proxy.warmup.enabled")
+    boolean warmupEnabled;
+
+    @ConfigProperty(name = "pix.proxy.warmup.max-duration-ms")
+    long warmupMaxDuration;
+
+    @ConfigProperty(name = "pix.proxy.warmup.max-rounds")
+    int warmupMaxRounds;
+
+    @ConfigProperty(name = "pix.proxy.warmup.connections")
+    int warmupConnections;
+
+    @ConfigProperty(name = "pix.proxy.warmup.path")
+    String warmupPath;
+
+    @ConfigProperty(name = "pix.proxy.threads.virtual.enabled")
+    boolean virtualThreadsEnabled;
+
+    @ConfigProperty(name = "pix.proxy.threads.virtual.pinned-threshold-ms")
+    long virtualThreadsPinnedThreshold;
+
+    @ConfigProperty(name = "pix.proxy.netty.boss-threads")
+    int nettyBossThreads;
+
+    @ConfigProperty(name = "pix.proxy.netty.worker-threads")
+    int nettyWorkerThreads;
+
+    @ConfigProperty(name = "pix.proxy.netty.reuse-port")
+    boolean nettyReusePort;
+
+    @ConfigProperty(name = "pix.proxy.netty.pooled-allocator")
+    boolean nettyPooledAllocator;
+
+    @ConfigProperty(name = "pix.proxy.netty.write-buffer.low-water-mark")
+    int nettyWriteBufferLowWaterMark;
+
+    @ConfigProperty(name = "pix.proxy.netty.write-buffer.high-water-mark")
+    int nettyWriteBufferHighWaterMark;
+
+}
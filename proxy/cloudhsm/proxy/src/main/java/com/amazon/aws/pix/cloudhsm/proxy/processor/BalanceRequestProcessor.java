@@ -0,0 +1,41 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.BalancedEndpoint;
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import io.netty.handler.codec.TooLongFrameException;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.TenantProcessor.UPSTREAM_PROPERTY;
+
+public class BalanceRequestProcessor implements Processor {
+
+    public static final String ENDPOINT_PROPERTY = "pix.upstream.endpoint";
+    public static final String CALL_PROPERTY = "pix.upstream.call";
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        BalancedEndpoint upstream = exchange.getProperty(UPSTREAM_PROPERTY, BalancedEndpoint.class);
+        UpstreamBalancer.Call call = upstream.getBalancer().select();
+
+        exchange.setProperty(CALL_PROPERTY, call);
+        exchange.setProperty(ENDPOINT_PROPERTY, upstream.getEndpoint(call.getNode()));
+        exchange.getUnitOfWork().addSynchronization(new SynchronizationAdapter() {
+            // handled upstream errors, as timeouts, complete the exchange without reaching ReleaseBalancerProcessor
+            @Override
+            public void onComplete(Exchange exchange) {
+                if (exchange.getProperty(Exchange.EXCEPTION_CAUGHT) instanceof TooLongFrameException) {
+                    call.ignore();
+                } else {
+                    call.failure();
+                }
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                call.failure();
+            }
+        });
+    }
+}
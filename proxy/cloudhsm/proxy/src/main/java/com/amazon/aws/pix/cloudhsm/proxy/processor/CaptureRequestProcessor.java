@@ -1,12 +1,16 @@
 package com.amazon.aws.pix.cloudhsm.proxy.processor;
 
 import com.amazon.aws.pix.core.audit.AuditLog;
+import com.amazon.aws.pix.core.util.HeaderUtil;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 
 import java.util.Map;
-import java.util.stream.Collectors;
 
+/**
+ * Starts the audit record of the request. The record keeps a reference to the signed body, which stays the exchange
+ * body until the response is audited, so moving it elsewhere (e.g. off the heap) would not free any memory.
+ */
 public class CaptureRequestProcessor implements Processor {
 
     public static final String REQUEST_LOG_PROPERTY = "pix.request.log";
@@ -20,11 +24,7 @@ public class CaptureRequestProcessor implements Processor {
         auditLog.setRequestPath(headers.get("CamelHttpPath"));
         auditLog.setRequestQuery(headers.get("CamelHttpQuery"));
         auditLog.setRequestBody(exchange.getIn().getBody(String.class));
-        auditLog.setRequestHeader(
-                headers.entrySet().stream()
-                        .filter(e -> !e.getKey().startsWith("Camel"))
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))
-        );
+        auditLog.setRequestHeader(HeaderUtil.withoutPrefix(headers, HeaderUtil.CAMEL_HEADER_PREFIX));
 
         exchange.setProperty(REQUEST_LOG_PROPERTY, auditLog);
     }
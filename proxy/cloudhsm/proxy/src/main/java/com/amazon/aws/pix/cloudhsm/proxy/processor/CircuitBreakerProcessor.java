@@ -0,0 +1,49 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.CircuitBreaker;
+import com.amazon.aws.pix.core.concurrent.CircuitBreakerOpenException;
+import io.netty.handler.codec.TooLongFrameException;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+@RequiredArgsConstructor
+public class CircuitBreakerProcessor implements Processor {
+
+    public static final String BREAKER_PERMIT_PROPERTY = "pix.breaker.permit";
+
+    private final String name;
+    private final Function<String, CircuitBreaker> breakerFactory;
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        String tenant = TenantProcessor.getTenant(exchange).getId();
+        CircuitBreaker.Permit permit = breakers.computeIfAbsent(tenant, breakerFactory)
+                .tryAcquire()
+                .orElseThrow(() -> new CircuitBreakerOpenException(String.format("%s.%s", name, tenant)));
+
+        exchange.setProperty(BREAKER_PERMIT_PROPERTY, permit);
+        exchange.getUnitOfWork().addSynchronization(new SynchronizationAdapter() {
+            // handled upstream errors, as timeouts, complete the exchange without reaching ReleaseCircuitBreakerProcessor
+            @Override
+            public void onComplete(Exchange exchange) {
+                if (exchange.getProperty(Exchange.EXCEPTION_CAUGHT) instanceof TooLongFrameException) {
+                    permit.ignore();
+                } else {
+                    permit.failure();
+                }
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                permit.failure();
+            }
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.SingleFlight;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.HeaderUtil;
+import com.amazon.aws.pix.core.xml.VerificationResult;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.RuntimeCamelException;
+import org.apache.camel.support.AsyncProcessorSupport;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.VerifyResponseProcessor.VERIFICATION_PROPERTY;
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADERS;
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_PREFIX;
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_SIGNATURE_VALID;
+
+/**
+ * Sends one upstream request for the concurrent identical requests, without blocking the calling threads. The request
+ * that made the call keeps the whole upstream response; the others drop their own request headers, get its status,
+ * body, BCB headers and signature verification, and time their own wait.
+ */
+@RequiredArgsConstructor
+public class CoalesceRequestProcessor extends AsyncProcessorSupport {
+
+    private static final String BCB_HEADER_PREFIX = "PI-";
+
+    private final SingleFlight<String, Response> singleFlight;
+    private final Function<Exchange, CompletableFuture<Exchange>> upstream;
+
+    /**
+     * @param upstream sends the exchange to the upstream route and completes with the exchange holding the response.
+     */
+    public CoalesceRequestProcessor(String name, Duration cacheTtl, Function<Exchange, CompletableFuture<Exchange>> upstream) {
+        this(new SingleFlight<>(name, cacheTtl, Response::isCacheable), upstream);
+    }
+
+    public boolean isCoalescable(Exchange exchange) {
+        return "GET".equals(exchange.getIn().getHeader("CamelHttpMethod"));
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        AtomicReference<CompletableFuture<Exchange>> own = new AtomicReference<>();
+        CompletableFuture<Response> shared = singleFlight.executeAsync(getKey(exchange), () -> send(exchange, own));
+
+        // the upstream route times the request that made the call, the others time their wait here
+        RequestTiming timing = TimeRequestProcessor.getTiming(exchange);
+        if (own.get() == null) timing.start(RequestTiming.UPSTREAM);
+
+        shared.whenComplete((response, throwable) -> {
+            if (throwable != null) {
+                exchange.setException(throwable);
+            } else if (own.get() != null) {
+                Exchange result = own.get().join();
+                exchange.getIn().copyFrom(result.getMessage());
+                VerificationResult verification = result.getProperty(VERIFICATION_PROPERTY, VerificationResult.class);
+                if (verification != null) exchange.setProperty(VERIFICATION_PROPERTY, verification);
+            } else {
+                timing.stop(RequestTiming.UPSTREAM);
+                Message message = exchange.getIn();
+                message.getHeaders().keySet().removeIf(name -> !HeaderUtil.hasPrefix(name, PIX_HEADER_PREFIX));
+                message.getHeaders().putAll(response.getHeaders());
+                message.setHeader("CamelHttpResponseCode", response.getStatusCode());
+                message.setBody(response.getBody());
+                VerificationResult verification = response.getVerification();
+                if (verification != null) {
+                    exchange.setProperty(VERIFICATION_PROPERTY, verification);
+                    message.setHeader(PIX_HEADER_SIGNATURE_VALID, String.valueOf(verification.isValid()));
+                }
+            }
+
+            Map<String, Object> pixHeaders = exchange.getProperty(PIX_HEADERS, Map.class);
+            if (throwable == null && pixHeaders != null) exchange.getIn().getHeaders().putAll(pixHeaders);
+            callback.done(false);
+        });
+        return false;
+    }
+
+    private CompletableFuture<Response> send(Exchange exchange, AtomicReference<CompletableFuture<Exchange>> own) {
+        Exchange request = exchange.copy();
+        request.removeProperty(PIX_HEADERS);
+
+        CompletableFuture<Exchange> call = upstream.apply(request);
+        own.set(call);
+        return call.thenApply(result -> {
+            if (result.getException() != null) {
+                throw RuntimeCamelException.wrapRuntimeCamelException(result.getException());
+            }
+
+            Message message = result.getMessage();
+            Map<String, Object> headers = new HashMap<>();
+            message.getHeaders().forEach((name, value) -> {
+                if (isBcbHeader(name) || Exchange.CONTENT_TYPE.equalsIgnoreCase(name)) headers.put(name, value);
+            });
+            return new Response(message.getHeader("CamelHttpResponseCode", Integer.class), headers, message.getBody(String.class),
+                    result.getProperty(VERIFICATION_PROPERTY, VerificationResult.class));
+        });
+    }
+
+    private String getKey(Exchange exchange) {
+        Map<String, Object> headers = exchange.getIn().getHeaders();
+
+        StringBuilder key = new StringBuilder()
+                .append(TenantProcessor.getTenant(exchange).getId())
+                .append(' ')
+                .append(headers.get("CamelHttpPath"))
+                .append('?')
+                .append(headers.get("CamelHttpQuery"));
+
+        Map<String, Object> bcbHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        headers.forEach((name, value) -> {
+            if (isBcbHeader(name)) bcbHeaders.put(name, value);
+        });
+        bcbHeaders.forEach((name, value) -> key.append('\n').append(name.toLowerCase()).append(':').append(value));
+
+        return key.toString();
+    }
+
+    private static boolean isBcbHeader(String name) {
+        return name.regionMatches(true, 0, BCB_HEADER_PREFIX, 0, BCB_HEADER_PREFIX.length());
+    }
+
+    /**
+     * The part of the upstream response shared with the coalesced requests: the status, the body with its content type,
+     * the BCB headers and the signature verification, null when the response was not verified.
+     */
+    @Value
+    public static class Response {
+
+        Integer statusCode;
+        Map<String, Object> headers;
+        String body;
+        VerificationResult verification;
+
+        boolean isCacheable() {
+            return Objects.equals(statusCode, 200) && verification != null && verification.isValid();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.Deadline;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.ExchangeTimedOutException;
+import org.apache.camel.Processor;
+
+import java.time.Duration;
+
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_TIMEOUT;
+
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class DeadlineProcessor implements Processor {
+
+    public static final String DEADLINE_PROPERTY = "pix.deadline";
+
+    private final Duration timeout;
+
+    /**
+     * Starts the deadline of the request, from the proxy timeout and the caller budget.
+     */
+    public static DeadlineProcessor start(Duration timeout) {
+        return new DeadlineProcessor(timeout);
+    }
+
+    /**
+     * Sets what is left of the deadline as the timeout of the upstream call.
+     */
+    public static DeadlineProcessor apply() {
+        return new DeadlineProcessor(null);
+    }
+
+    public static Deadline getDeadline(Exchange exchange) {
+        return exchange.getProperty(DEADLINE_PROPERTY, Deadline.class);
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (timeout != null) {
+            exchange.setProperty(DEADLINE_PROPERTY, Deadline.of(exchange.getIn().getHeader(PIX_HEADER_TIMEOUT, String.class), timeout));
+            return;
+        }
+
+        Deadline deadline = getDeadline(exchange);
+        if (deadline == null) return;
+        if (deadline.isExpired()) throw new ExchangeTimedOutException(exchange, 0);
+        exchange.getIn().setHeader("CamelNettyRequestTimeout", Math.max(1, deadline.remaining().toMillis()));
+    }
+}
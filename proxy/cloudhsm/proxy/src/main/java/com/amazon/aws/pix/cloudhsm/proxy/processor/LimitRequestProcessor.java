@@ -0,0 +1,50 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+
+import java.util.Optional;
+
+@RequiredArgsConstructor
+public class LimitRequestProcessor implements Processor {
+
+    public static final String PERMIT_PROPERTY = "pix.limit.permit";
+
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final int rejectedStatusCode;
+
+    /**
+     * Starts the round trip time sample of the permit right before the upstream call, so it leaves out the signing.
+     */
+    public static void startSample(Exchange exchange) {
+        AdaptiveConcurrencyLimiter.Permit permit = exchange.getProperty(PERMIT_PROPERTY, AdaptiveConcurrencyLimiter.Permit.class);
+        if (permit != null) permit.startSample();
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter.tryAcquire();
+        if (!permit.isPresent()) {
+            exchange.getIn().setHeader("CamelHttpResponseCode", rejectedStatusCode);
+            exchange.getIn().setBody("Concurrency limit exceeded");
+            exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
+            return;
+        }
+
+        exchange.setProperty(PERMIT_PROPERTY, permit.get());
+        exchange.getUnitOfWork().addSynchronization(new SynchronizationAdapter() {
+            @Override
+            public void onComplete(Exchange exchange) {
+                permit.get().ignore();
+            }
+
+            @Override
+            public void onFailure(Exchange exchange) {
+                permit.get().dropped();
+            }
+        });
+    }
+}
@@ -1,7 +1,11 @@
 package com.amazon.aws.pix.cloudhsm.proxy.processor;
 
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.Tenant;
 import com.amazon.aws.pix.core.audit.AuditLog;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.HeaderUtil;
 import com.amazon.aws.pix.core.util.PixConstants;
+import com.amazon.aws.pix.core.xml.VerificationResult;
 import lombok.RequiredArgsConstructor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
@@ -11,7 +15,7 @@ import software.amazon.awssdk.services.firehose.model.PutRecordRequest;
 import software.amazon.awssdk.services.firehose.model.PutRecordResponse;
 
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.function.Function;
 
 import static com.amazon.aws.pix.cloudhsm.proxy.processor.CaptureRequestProcessor.REQUEST_LOG_PROPERTY;
 
@@ -19,7 +23,8 @@ import static com.amazon.aws.pix.cloudhsm.proxy.processor.CaptureRequestProcesso
 public class LogRequestResponseProcessor implements Processor {
 
     private final FirehoseClient firehoseClient;
-    private final String streamName;
+    private final Function<Tenant, String> streamName;
+    private final boolean timingHeader;
 
     @Override
     public void process(Exchange exchange) throws Exception {
@@ -29,17 +34,23 @@ public class LogRequestResponseProcessor implements Processor {
         auditLog.setResponseStatusCode(headers.get("CamelHttpResponseCode"));
         auditLog.setResponseSignatureValid(headers.get(PixConstants.PIX_HEADER_SIGNATURE_VALID));
         auditLog.setResponseBody(exchange.getIn().getBody(String.class));
-        auditLog.setResponseHeader(
-                headers.entrySet().stream()
-                        .filter(e -> !e.getKey().startsWith("Camel"))
-                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue))
-        );
+
+        VerificationResult verification = exchange.getProperty(VerifyResponseProcessor.VERIFICATION_PROPERTY, VerificationResult.class);
+        if (verification != null) auditLog.setResponseVerification(verification.toMap());
+        auditLog.setResponseHeader(HeaderUtil.withoutPrefix(headers, HeaderUtil.CAMEL_HEADER_PREFIX));
+
+        RequestTiming timing = TimeRequestProcessor.getTiming(exchange);
+        auditLog.setTiming(timing.getDurations());
 
         PutRecordRequest putRecordRequest = PutRecordRequest.builder()
-                .deliveryStreamName(streamName)
+                .deliveryStreamName(streamName.apply(TenantProcessor.getTenant(exchange)))
                 .record(builder -> builder.data(SdkBytes.fromUtf8String(auditLog.toJson())))
                 .build();
 
-        PutRecordResponse putRecordResponse = firehoseClient.putRecord(putRecordRequest);
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.AUDIT)) {
+            PutRecordResponse putRecordResponse = firehoseClient.putRecord(putRecordRequest);
+        }
+
+        if (timingHeader) headers.put(PixConstants.PIX_HEADER_TIMING, timing.toHeader());
     }
 }
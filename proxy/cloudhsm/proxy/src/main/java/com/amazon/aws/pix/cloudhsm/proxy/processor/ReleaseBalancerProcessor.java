@@ -0,0 +1,23 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.BalanceRequestProcessor.CALL_PROPERTY;
+
+public class ReleaseBalancerProcessor implements Processor {
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        UpstreamBalancer.Call call = exchange.getProperty(CALL_PROPERTY, UpstreamBalancer.Call.class);
+        if (call == null) return;
+
+        Integer statusCode = exchange.getIn().getHeader("CamelHttpResponseCode", Integer.class);
+        if (statusCode == null || statusCode >= 500) {
+            call.failure();
+        } else {
+            call.success();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.CircuitBreaker;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.CircuitBreakerProcessor.BREAKER_PERMIT_PROPERTY;
+
+public class ReleaseCircuitBreakerProcessor implements Processor {
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        CircuitBreaker.Permit permit = exchange.getProperty(BREAKER_PERMIT_PROPERTY, CircuitBreaker.Permit.class);
+        if (permit == null) return;
+
+        Integer statusCode = exchange.getIn().getHeader("CamelHttpResponseCode", Integer.class);
+        if (statusCode == null || statusCode >= 500) {
+            permit.failure();
+        } else {
+            permit.success();
+        }
+    }
+}
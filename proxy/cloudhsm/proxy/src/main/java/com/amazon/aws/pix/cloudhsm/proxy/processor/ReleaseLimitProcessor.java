@@ -0,0 +1,23 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.LimitRequestProcessor.PERMIT_PROPERTY;
+
+public class ReleaseLimitProcessor implements Processor {
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        AdaptiveConcurrencyLimiter.Permit permit = exchange.getProperty(PERMIT_PROPERTY, AdaptiveConcurrencyLimiter.Permit.class);
+        if (permit == null) return;
+
+        Integer statusCode = exchange.getIn().getHeader("CamelHttpResponseCode", Integer.class);
+        if (statusCode == null || statusCode >= 500) {
+            permit.dropped();
+        } else {
+            permit.success();
+        }
+    }
+}
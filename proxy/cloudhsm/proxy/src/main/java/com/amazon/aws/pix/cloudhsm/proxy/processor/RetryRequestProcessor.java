@@ -0,0 +1,145 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.concurrent.CircuitBreakerOpenException;
+import com.amazon.aws.pix.core.concurrent.Deadline;
+import com.amazon.aws.pix.core.concurrent.LatencyTracker;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.xml.VerificationResult;
+import org.apache.camel.AsyncCallback;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+import org.apache.camel.support.AsyncProcessorSupport;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import static com.amazon.aws.pix.cloudhsm.proxy.processor.VerifyResponseProcessor.VERIFICATION_PROPERTY;
+
+/**
+ * Sends idempotent requests to the upstream route on copies of the exchange, without blocking the calling thread.
+ * Errors and 5xx responses are retried while the deadline allows it and, with a latency tracker, a second request is
+ * started when the first is slower than the tracked percentile; the first response below 500 wins.
+ */
+public class RetryRequestProcessor extends AsyncProcessorSupport {
+
+    private final ProducerTemplate producerTemplate;
+    private final String upstreamUri;
+    private final int maxRetries;
+    private final LatencyTracker latency;
+    private final ScheduledExecutorService scheduler;
+
+    private final LongAdder retried;
+    private final LongAdder hedged;
+
+    /**
+     * @param latency latency of the successful calls, null to disable hedging.
+     */
+    public RetryRequestProcessor(String name, ProducerTemplate producerTemplate, String upstreamUri, int maxRetries, LatencyTracker latency) {
+        this.producerTemplate = producerTemplate;
+        this.upstreamUri = upstreamUri;
+        this.maxRetries = maxRetries;
+        this.latency = latency;
+        // only starts the hedged requests, which are sent asynchronously
+        this.scheduler = latency == null ? null : producerTemplate.getCamelContext().getExecutorServiceManager().newSingleThreadScheduledExecutor(this, "pix-hedge-" + name);
+
+        this.retried = Metrics.counter(String.format("pix.upstream.%s.retried", name));
+        this.hedged = Metrics.counter(String.format("pix.upstream.%s.hedged", name));
+    }
+
+    public boolean isRetryable(Exchange exchange) {
+        return "GET".equals(exchange.getIn().getHeader("CamelHttpMethod"));
+    }
+
+    @Override
+    public boolean process(Exchange exchange, AsyncCallback callback) {
+        send(exchange).whenComplete((upstream, throwable) -> {
+            if (throwable != null) {
+                exchange.setException(throwable);
+            } else if (upstream.getException() != null) {
+                exchange.setException(upstream.getException());
+            } else {
+                exchange.getIn().copyFrom(upstream.getMessage());
+                VerificationResult verification = upstream.getProperty(VERIFICATION_PROPERTY, VerificationResult.class);
+                if (verification != null) exchange.setProperty(VERIFICATION_PROPERTY, verification);
+            }
+            callback.done(false);
+        });
+        return false;
+    }
+
+    /**
+     * @return the copy of the exchange holding the upstream response; the exchange itself is not changed.
+     */
+    public CompletableFuture<Exchange> send(Exchange exchange) {
+        CompletableFuture<Exchange> result = new CompletableFuture<>();
+        send(exchange, 0, result);
+        return result;
+    }
+
+    private void send(Exchange exchange, int attempt, CompletableFuture<Exchange> result) {
+        Deadline deadline = DeadlineProcessor.getDeadline(exchange);
+        (scheduler != null ? hedge(exchange) : attempt(exchange)).whenComplete((upstream, throwable) -> {
+            if (throwable != null) {
+                result.completeExceptionally(throwable);
+            } else if (isSuccess(upstream) || attempt >= maxRetries || isBreakerOpen(upstream) || (deadline != null && deadline.isExpired())) {
+                result.complete(upstream);
+            } else {
+                retried.increment();
+                send(exchange, attempt + 1, result);
+            }
+        });
+    }
+
+    private CompletableFuture<Exchange> attempt(Exchange exchange) {
+        long start = System.nanoTime();
+        return producerTemplate.asyncSend(upstreamUri, exchange.copy()).thenApply(upstream -> {
+            if (latency != null && isSuccess(upstream)) latency.record(System.nanoTime() - start);
+            return upstream;
+        });
+    }
+
+    private CompletableFuture<Exchange> hedge(Exchange exchange) {
+        Optional<Duration> delay = latency.get();
+        CompletableFuture<Exchange> first = attempt(exchange);
+        if (!delay.isPresent()) return first;
+
+        CompletableFuture<Exchange> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        BiConsumer<Exchange, Throwable> complete = (upstream, throwable) -> {
+            if (throwable == null && isSuccess(upstream)) {
+                result.complete(upstream);
+            } else if (pending.decrementAndGet() == 0) {
+                if (throwable == null) result.complete(upstream);
+                else result.completeExceptionally(throwable);
+            }
+        };
+
+        ScheduledFuture<?> second = scheduler.schedule(() -> {
+            if (first.isDone()) return;
+            hedged.increment();
+            pending.incrementAndGet();
+            attempt(exchange).whenComplete(complete);
+        }, delay.get().toNanos(), TimeUnit.NANOSECONDS);
+
+        first.whenComplete(complete);
+        result.whenComplete((upstream, throwable) -> second.cancel(false));
+        return result;
+    }
+
+    private boolean isSuccess(Exchange upstream) {
+        Integer statusCode = upstream.getMessage().getHeader("CamelHttpResponseCode", Integer.class);
+        return upstream.getException() == null && statusCode != null && statusCode < 500;
+    }
+
+    private boolean isBreakerOpen(Exchange upstream) {
+        return upstream.getProperty(Exchange.EXCEPTION_CAUGHT) instanceof CircuitBreakerOpenException
+                || upstream.getException() instanceof CircuitBreakerOpenException;
+    }
+}
@@ -0,0 +1,67 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.BalancedEndpoint;
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.Tenant;
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.TenantRegistry;
+import com.amazon.aws.pix.core.util.TenantUtil;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+import org.apache.camel.component.netty.NettyConstants;
+
+import java.net.SocketAddress;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_TENANT;
+
+/**
+ * Selects the tenant named by the request, if the caller (the remote address of the connection, not a header) is
+ * allowed to use it.
+ */
+@RequiredArgsConstructor
+public class TenantProcessor implements Processor {
+
+    public static final String TENANT_PROPERTY = "pix.tenant";
+    public static final String UPSTREAM_PROPERTY = "pix.tenant.upstream";
+
+    private final TenantRegistry registry;
+    private final Function<Tenant, BalancedEndpoint> upstream;
+
+    public static Tenant getTenant(Exchange exchange) {
+        return exchange.getProperty(TENANT_PROPERTY, Tenant.class);
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Message message = exchange.getIn();
+        String path = message.getHeader(Exchange.HTTP_PATH, String.class);
+
+        String id;
+        try {
+            id = TenantUtil.getTenant(message.getHeader(PIX_HEADER_TENANT, String.class), path);
+        } catch (IllegalArgumentException e) {
+            id = null;
+        }
+
+        if (id != null && !registry.isAllowed(id, message.getHeader(NettyConstants.NETTY_REMOTE_ADDRESS, SocketAddress.class))) {
+            message.setHeader(Exchange.HTTP_RESPONSE_CODE, 403);
+            message.setBody("Tenant not allowed");
+            exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
+            return;
+        }
+
+        Optional<Tenant> tenant = id != null ? registry.find(id) : Optional.empty();
+        if (!tenant.isPresent()) {
+            message.setHeader(Exchange.HTTP_RESPONSE_CODE, 404);
+            message.setBody("Unknown tenant");
+            exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
+            return;
+        }
+
+        message.setHeader(Exchange.HTTP_PATH, TenantUtil.removeTenantPath(path));
+        exchange.setProperty(TENANT_PROPERTY, tenant.get());
+        exchange.setProperty(UPSTREAM_PROPERTY, upstream.apply(tenant.get()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+import org.apache.camel.support.SynchronizationAdapter;
+
+@RequiredArgsConstructor
+public class TimeRequestProcessor implements Processor {
+
+    public static final String TIMING_PROPERTY = "pix.timing";
+
+    private final String name;
+
+    public static RequestTiming getTiming(Exchange exchange) {
+        RequestTiming timing = exchange.getProperty(TIMING_PROPERTY, RequestTiming.class);
+        return timing != null ? timing : RequestTiming.NONE;
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        RequestTiming timing = new RequestTiming(name);
+        exchange.setProperty(TIMING_PROPERTY, timing);
+        exchange.getUnitOfWork().addSynchronization(new SynchronizationAdapter() {
+            @Override
+            public void onDone(Exchange exchange) {
+                timing.end();
+            }
+        });
+    }
+}
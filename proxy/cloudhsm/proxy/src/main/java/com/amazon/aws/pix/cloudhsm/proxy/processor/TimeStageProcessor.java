@@ -0,0 +1,30 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import org.apache.camel.Exchange;
+import org.apache.camel.Processor;
+
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class TimeStageProcessor implements Processor {
+
+    private final String stage;
+    private final boolean start;
+
+    public static TimeStageProcessor start(String stage) {
+        return new TimeStageProcessor(stage, true);
+    }
+
+    public static TimeStageProcessor stop(String stage) {
+        return new TimeStageProcessor(stage, false);
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        if (start) {
+            TimeRequestProcessor.getTiming(exchange).start(stage);
+        } else {
+            TimeRequestProcessor.getTiming(exchange).stop(stage);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.amazon.aws.pix.cloudhsm.proxy.processor;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.xml.Iso20022Validator;
+import com.amazon.aws.pix.core.xml.XmlValidationException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Exchange;
+import org.apache.camel.Message;
+import org.apache.camel.Processor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+public class ValidateRequestProcessor implements Processor {
+
+    private final Iso20022Validator validator;
+    private final LongAdder rejected;
+
+    public ValidateRequestProcessor(String name, Iso20022Validator validator) {
+        this.validator = validator;
+        this.rejected = Metrics.counter(String.format("pix.validation.%s.rejected", name));
+    }
+
+    @Override
+    public void process(Exchange exchange) throws Exception {
+        Message message = exchange.getIn();
+        byte[] body = message.getBody(byte[].class);
+        if (body == null || body.length == 0) return;
+
+        message.setBody(body);
+        try {
+            validator.validate(body);
+        } catch (XmlValidationException e) {
+            log.warn("invalid request: {}", e.getMessage());
+            rejected.increment();
+            message.setHeader(Exchange.HTTP_RESPONSE_CODE, 400);
+            message.setBody(e.getMessage());
+            exchange.setProperty(Exchange.ROUTE_STOP, Boolean.TRUE);
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.amazon.aws.pix.cloudhsm.proxy.processor;
 
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.Tenant;
+import com.amazon.aws.pix.core.xml.VerificationResult;
 import com.amazon.aws.pix.core.xml.XmlSigner;
 import lombok.RequiredArgsConstructor;
 import org.apache.camel.Exchange;
 import org.apache.camel.Processor;
 
+import java.io.ByteArrayInputStream;
 import java.util.Map;
+import java.util.function.Function;
 
 import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADERS;
 import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_SIGNATURE_VALID;
@@ -13,21 +17,26 @@ import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_SIGNATURE_VAL
 @RequiredArgsConstructor
 public class VerifyResponseProcessor implements Processor {
 
-    private final XmlSigner xmlSigner;
+    public static final String VERIFICATION_PROPERTY = "pix.verification";
+
+    private final Function<Tenant, XmlSigner> xmlSigner;
 
     @Override
     public void process(Exchange exchange) throws Exception {
         Map<String, Object> headers = exchange.getIn().getHeaders();
-        headers.putAll(exchange.getProperty(PIX_HEADERS, Map.class));
-
-        final String body = exchange.getIn().getBody(String.class);
-        if (body != null && body.length() > 0) {
-            int statusCode = (int) exchange.getIn().getHeader("CamelHttpResponseCode");
-            if (200 <= statusCode && statusCode < 300) {
-                final Boolean valid = xmlSigner.verify(body);
-                headers.put(PIX_HEADER_SIGNATURE_VALID, valid.toString());
-                if (!valid) headers.put("CamelHttpResponseCode", 500);
-            }
-        }
+        Map<String, Object> pixHeaders = exchange.getProperty(PIX_HEADERS, Map.class);
+        if (pixHeaders != null) headers.putAll(pixHeaders);
+
+        // the response stays in bytes: the parser reads them as they are and the listener writes them back unchanged
+        byte[] bytes = exchange.getIn().getBody(byte[].class);
+        exchange.getIn().setBody(bytes);
+
+        Integer statusCode = exchange.getIn().getHeader("CamelHttpResponseCode", Integer.class);
+        if (statusCode == null || statusCode < 200 || statusCode >= 300 || bytes == null || bytes.length == 0) return;
+
+        final VerificationResult result = xmlSigner.apply(TenantProcessor.getTenant(exchange)).validate(new ByteArrayInputStream(bytes), TimeRequestProcessor.getTiming(exchange));
+        exchange.setProperty(VERIFICATION_PROPERTY, result);
+        headers.put(PIX_HEADER_SIGNATURE_VALID, String.valueOf(result.isValid()));
+        if (!result.isValid()) headers.put("CamelHttpResponseCode", 500);
     }
 }
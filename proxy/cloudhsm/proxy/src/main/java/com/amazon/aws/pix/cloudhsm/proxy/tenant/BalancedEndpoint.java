@@ -0,0 +1,46 @@
+package com.amazon.aws.pix.cloudhsm.proxy.tenant;
+
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import lombok.Getter;
+import org.apache.camel.Endpoint;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A BCB endpoint spread over the addresses of its host. Each address found by the {@link UpstreamBalancer} gets its
+ * own Camel endpoint, and so its own connections. Once the balancer drops an address and its last call is done, the
+ * endpoint is removed and stopped.
+ */
+public class BalancedEndpoint {
+
+    @Getter
+    private final UpstreamBalancer balancer;
+    private final Function<String, Endpoint> factory;
+    private final Consumer<Endpoint> stopper;
+    private final Map<UpstreamBalancer.Node, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    public BalancedEndpoint(UpstreamBalancer balancer, Function<String, Endpoint> factory, Consumer<Endpoint> stopper) {
+        this.balancer = balancer;
+        this.factory = factory;
+        this.stopper = stopper;
+        balancer.addRefreshListener(this::prune);
+    }
+
+    public Endpoint getEndpoint(UpstreamBalancer.Node node) {
+        return endpoints.computeIfAbsent(node, current -> factory.apply(current.getAddress()));
+    }
+
+    private void prune() {
+        Set<UpstreamBalancer.Node> current = new HashSet<>(balancer.getNodes());
+        endpoints.forEach((node, endpoint) -> {
+            if (current.contains(node) || node.getOutstanding() > 0) return;
+            if (endpoints.remove(node, endpoint) && !endpoints.containsValue(endpoint)) stopper.accept(endpoint);
+        });
+    }
+
+}
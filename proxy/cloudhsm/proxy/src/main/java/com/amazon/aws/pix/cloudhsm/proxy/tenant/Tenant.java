@@ -0,0 +1,18 @@
+package com.amazon.aws.pix.cloudhsm.proxy.tenant;
+
+import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
+import com.amazon.aws.pix.core.xml.XmlSigner;
+import lombok.Value;
+
+@Value
+public class Tenant {
+
+    String id;
+    XmlSigner xmlSigner;
+    Iso20022XmlSigner iso20022XmlSigner;
+    BalancedEndpoint dictEndpoint;
+    BalancedEndpoint spiEndpoint;
+    String dictAuditStream;
+    String spiAuditStream;
+
+}
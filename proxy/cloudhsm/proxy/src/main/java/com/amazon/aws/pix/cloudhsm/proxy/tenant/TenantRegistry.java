@@ -0,0 +1,48 @@
+package com.amazon.aws.pix.cloudhsm.proxy.tenant;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.util.AddressAllowlist;
+
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static com.amazon.aws.pix.core.util.TenantUtil.DEFAULT_TENANT;
+
+/**
+ * Creates each tenant (signers, mTLS context and BCB endpoints) on its first request and keeps it for the lifetime of
+ * the proxy, so all tenants share the same process, HSM session and event loops. A tenant other than the default one
+ * can only be used by the callers of its allowlist.
+ */
+public class TenantRegistry {
+
+    private final Map<String, Tenant> tenants = new ConcurrentHashMap<>();
+    private final Map<String, AddressAllowlist> allowedCallers;
+    private final Function<String, Tenant> factory;
+
+    /**
+     * @param allowedCallers the callers allowed to use each tenant, by tenant id.
+     */
+    public TenantRegistry(Map<String, AddressAllowlist> allowedCallers, Function<String, Tenant> factory) {
+        this.allowedCallers = allowedCallers;
+        this.factory = factory;
+        Metrics.gauge("pix.tenants.loaded", tenants::size);
+    }
+
+    public Tenant getDefault() {
+        return tenants.computeIfAbsent(DEFAULT_TENANT, factory);
+    }
+
+    public boolean isAllowed(String id, SocketAddress caller) {
+        if (DEFAULT_TENANT.equals(id)) return true;
+        return allowedCallers.getOrDefault(id, AddressAllowlist.NONE).allows(caller);
+    }
+
+    public Optional<Tenant> find(String id) {
+        if (!DEFAULT_TENANT.equals(id) && !allowedCallers.containsKey(id)) return Optional.empty();
+        return Optional.of(tenants.computeIfAbsent(id, factory));
+    }
+
+}
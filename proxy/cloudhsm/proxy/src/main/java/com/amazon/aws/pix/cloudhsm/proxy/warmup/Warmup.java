@@ -0,0 +1,165 @@
+package com.amazon.aws.pix.cloudhsm.proxy.warmup;
+
+import com.amazon.aws.pix.cloudhsm.proxy.tenant.BalancedEndpoint;
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import com.amazon.aws.pix.core.concurrent.Deadline;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.xml.XmlSigner;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.camel.Exchange;
+import org.apache.camel.ProducerTemplate;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Work done before the proxy reports ready on {@code /check}: sample DICT and SPI messages are signed and verified
+ * until the latency of a round settles, so the first requests do not pay for the JIT, the XML security initialization
+ * and the HSM session, then connections are opened to each address of the BCB endpoints. Both steps share the same
+ * time budget, and a failure only ends its step. The connections go straight to the endpoint of each address, so
+ * they are not counted by the balancer nor the circuit breakers.
+ */
+@Slf4j
+public class Warmup implements Runnable {
+
+    private static final int BATCH = 10;
+    private static final double SETTLED = 0.1;
+
+    private final ProducerTemplate producerTemplate;
+    private final List<Round> rounds;
+    private final List<BalancedEndpoint> endpoints;
+    private final Duration maxDuration;
+    private final int maxRounds;
+    private final int connections;
+    private final String path;
+
+    private volatile boolean ready;
+
+    public Warmup(ProducerTemplate producerTemplate, List<Round> rounds, List<BalancedEndpoint> endpoints, Duration maxDuration, int maxRounds, int connections, String path) {
+        this.producerTemplate = producerTemplate;
+        this.rounds = rounds;
+        this.endpoints = endpoints;
+        this.maxDuration = maxDuration;
+        this.maxRounds = maxRounds;
+        this.connections = connections;
+        this.path = path;
+        Metrics.gauge("pix.warmup.ready", () -> ready ? 1 : 0);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void run() {
+        long start = System.nanoTime();
+        Deadline deadline = Deadline.after(maxDuration);
+        try {
+            sign(deadline);
+        } catch (RuntimeException e) {
+            log.warn("warmup sign/verify round failed", e);
+        }
+        try {
+            connect(deadline);
+        } catch (RuntimeException e) {
+            log.warn("warmup connections failed", e);
+        }
+        ready = true;
+        log.info("warmup done in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void sign(Deadline deadline) {
+        long[] batch = new long[BATCH];
+        long first = 0;
+        long last = 0;
+        long previousMedian = 0;
+        int count = 0;
+
+        while (count < maxRounds && !deadline.isExpired()) {
+            long start = System.nanoTime();
+            for (Round round : rounds) round.run();
+            last = System.nanoTime() - start;
+            if (count == 0) first = last;
+            batch[count++ % BATCH] = last;
+
+            if (count % BATCH == 0) {
+                long median = median(batch);
+                boolean settled = previousMedian > 0 && Math.abs(median - previousMedian) <= previousMedian * SETTLED;
+                previousMedian = median;
+                if (settled) break;
+            }
+        }
+
+        log.info("warmup: {} sign/verify round(s), first {} ms, last {} ms, last batch median {} ms", count,
+                TimeUnit.NANOSECONDS.toMillis(first), TimeUnit.NANOSECONDS.toMillis(last), TimeUnit.NANOSECONDS.toMillis(previousMedian));
+    }
+
+    private void connect(Deadline deadline) {
+        List<CompletableFuture<Exchange>> calls = new ArrayList<>();
+        for (BalancedEndpoint endpoint : endpoints) {
+            for (UpstreamBalancer.Node node : endpoint.getBalancer().getNodes()) {
+                for (int i = 0; i < connections; i++) {
+                    calls.add(producerTemplate.asyncSend(endpoint.getEndpoint(node), exchange -> {
+                        exchange.getIn().setHeader(Exchange.HTTP_METHOD, "GET");
+                        exchange.getIn().setHeader(Exchange.HTTP_PATH, path);
+                    }));
+                }
+            }
+        }
+
+        int opened = 0;
+        for (CompletableFuture<Exchange> call : calls) {
+            try {
+                if (call.get(deadline.remaining().toNanos(), TimeUnit.NANOSECONDS).getException() == null) opened++;
+            } catch (ExecutionException | TimeoutException e) {
+                // not opened
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        log.info("warmup: {} of {} BCB connection(s) opened", opened, calls.size());
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /**
+     * A sample message signed with the signer used on the requests and verified with one trusting the proxy
+     * certificate.
+     */
+    public static class Round {
+
+        private final XmlSigner signer;
+        private final XmlSigner verifier;
+        private final String xml;
+
+        @SneakyThrows
+        public Round(XmlSigner signer, XmlSigner verifier, String resource) {
+            this.signer = signer;
+            this.verifier = verifier;
+            try (InputStream inputStream = Warmup.class.getClassLoader().getResourceAsStream(resource)) {
+                this.xml = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+
+        private void run() {
+            if (!verifier.verify(signer.sign(xml))) throw new IllegalStateException("Signature of the warmup message not verified");
+        }
+
+    }
+
+}
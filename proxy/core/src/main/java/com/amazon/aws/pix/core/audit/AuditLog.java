@@ -43,6 +43,10 @@ public class AuditLog {
         put("response_signature_valid", value);
     }
 
+    public void setResponseVerification(Map<String, ?> value) {
+        put("response_verification", value);
+    }
+
     public void setResponseHeader(Map<String, ?> value) {
         put("response_header", value);
     }
@@ -51,6 +55,10 @@ public class AuditLog {
         put("response_body", value);
     }
 
+    public void setTiming(Map<String, ?> value) {
+        put("timing", value);
+    }
+
     public String toJson() {
         return json.toString();
     }
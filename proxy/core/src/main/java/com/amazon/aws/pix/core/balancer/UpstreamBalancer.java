@@ -0,0 +1,269 @@
+package com.amazon.aws.pix.core.balancer;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads the calls to an upstream host over every address it resolves to. The host is resolved again every
+ * {@code refreshInterval} in the background; addresses that remain keep their statistics.
+ * <p>
+ * Each call takes the better of two random nodes (power of two choices): the one with fewer outstanding calls or,
+ * with {@link Strategy#EWMA}, the lower EWMA latency weighted by the outstanding calls. A node that fails, or answers
+ * {@code slowFactor} times slower than the median of the fleet, {@code ejectAfter} times in a row is ejected for
+ * {@code ejectDuration}. At most half of the nodes are ejected at the same time.
+ */
+@Slf4j
+public class UpstreamBalancer implements AutoCloseable {
+
+    public enum Strategy {
+        LEAST_OUTSTANDING, EWMA
+    }
+
+    public interface Resolver {
+        InetAddress[] resolve(String host) throws UnknownHostException;
+    }
+
+    private static final double EWMA_WEIGHT = 0.3;
+
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pix-dns-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String host;
+    private final Resolver resolver;
+    private final Strategy strategy;
+    private final int ejectAfter;
+    private final double slowFactor;
+    private final long ejectNanos;
+    private final ScheduledFuture<?> refreshTask;
+
+    private volatile List<Node> nodes;
+    private final List<Runnable> refreshListeners = new CopyOnWriteArrayList<>();
+
+    private final LongAdder ejections;
+
+    public UpstreamBalancer(String name, String host, Strategy strategy, Duration refreshInterval, int ejectAfter, double slowFactor, Duration ejectDuration) {
+        this(name, host, InetAddress::getAllByName, strategy, refreshInterval, ejectAfter, slowFactor, ejectDuration);
+    }
+
+    public UpstreamBalancer(String name, String host, Resolver resolver, Strategy strategy, Duration refreshInterval, int ejectAfter, double slowFactor, Duration ejectDuration) {
+        if (ejectAfter < 1 || slowFactor <= 1) throw new IllegalArgumentException("Invalid ejection settings for " + name);
+        this.host = host;
+        this.resolver = resolver;
+        this.strategy = strategy;
+        this.ejectAfter = ejectAfter;
+        this.slowFactor = slowFactor;
+        this.ejectNanos = ejectDuration.toNanos();
+        this.nodes = Collections.singletonList(new Node(host));
+        refresh();
+        this.refreshTask = refreshInterval.isZero() ? null
+                : REFRESHER.scheduleWithFixedDelay(this::refresh, refreshInterval.toMillis(), refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+
+        String prefix = "pix.balancer." + name;
+        this.ejections = Metrics.counter(prefix + ".ejections");
+        Metrics.gauge(prefix + ".nodes", () -> nodes.size());
+        Metrics.gauge(prefix + ".ejected", () -> nodes.stream().filter(node -> node.isEjected(System.nanoTime())).count());
+    }
+
+    /**
+     * Resolves the host again. Failures keep the current nodes, the first one falls back to the host name itself.
+     */
+    public void refresh() {
+        InetAddress[] addresses;
+        try {
+            addresses = resolver.resolve(host);
+        } catch (UnknownHostException e) {
+            log.warn("Unable to resolve {}, keeping {} node(s)", host, nodes.size(), e);
+            return;
+        }
+        if (addresses == null || addresses.length == 0) return;
+
+        Map<String, Node> current = new HashMap<>();
+        nodes.forEach(node -> current.put(node.getAddress(), node));
+
+        List<Node> refreshed = new ArrayList<>(addresses.length);
+        Arrays.stream(addresses).map(UpstreamBalancer::toAddress).distinct()
+                .forEach(address -> refreshed.add(current.getOrDefault(address, new Node(address))));
+        nodes = Collections.unmodifiableList(refreshed);
+        for (Runnable listener : refreshListeners) {
+            try {
+                listener.run();
+            } catch (Exception e) {
+                log.warn("Refresh listener of {} failed", host, e);
+            }
+        }
+    }
+
+    /**
+     * Called after each successful refresh, on the refresher thread.
+     */
+    public void addRefreshListener(Runnable listener) {
+        refreshListeners.add(listener);
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public Call select() {
+        List<Node> candidates = nodes;
+        long now = System.nanoTime();
+
+        Node node;
+        if (candidates.size() == 1) {
+            node = candidates.get(0);
+        } else {
+            Node first = pick(candidates, now);
+            Node second = pick(candidates, now);
+            node = score(first) <= score(second) ? first : second;
+        }
+        node.outstanding.incrementAndGet();
+        return new Call(node, now);
+    }
+
+    @Override
+    public void close() {
+        if (refreshTask != null) refreshTask.cancel(false);
+    }
+
+    private Node pick(List<Node> candidates, long now) {
+        int start = ThreadLocalRandom.current().nextInt(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            Node node = candidates.get((start + i) % candidates.size());
+            if (!node.isEjected(now)) return node;
+        }
+        return candidates.get(start);
+    }
+
+    private double score(Node node) {
+        int outstanding = node.outstanding.get();
+        return strategy == Strategy.EWMA ? (node.ewma + 1) * (outstanding + 1) : outstanding;
+    }
+
+    private void onSuccess(Node node, long rtt) {
+        double median = median(node);
+        synchronized (node) {
+            node.ewma = node.ewma == 0 ? rtt : node.ewma + EWMA_WEIGHT * (rtt - node.ewma);
+        }
+        if (median > 0 && rtt > slowFactor * median) {
+            onBad(node);
+        } else {
+            node.bad.set(0);
+        }
+    }
+
+    private void onBad(Node node) {
+        if (node.bad.incrementAndGet() < ejectAfter) return;
+
+        List<Node> candidates = nodes;
+        long now = System.nanoTime();
+        synchronized (this) {
+            long ejected = candidates.stream().filter(n -> n.isEjected(now)).count();
+            if (candidates.size() < 2 || (ejected + 1) * 2 > candidates.size()) return;
+            node.ejectedUntil = now + ejectNanos;
+            node.bad.set(0);
+            // the latency is measured again once the node is back
+            node.ewma = 0;
+        }
+        ejections.increment();
+        log.warn("Ejected {} ({}) for {} ms", node.getAddress(), host, TimeUnit.NANOSECONDS.toMillis(ejectNanos));
+    }
+
+    private double median(Node excluded) {
+        List<Node> candidates = nodes;
+        double[] values = candidates.stream().filter(n -> n != excluded && n.ewma > 0).mapToDouble(n -> n.ewma).sorted().toArray();
+        return values.length == 0 ? 0 : values[values.length / 2];
+    }
+
+    private static String toAddress(InetAddress address) {
+        return address instanceof Inet6Address ? "[" + address.getHostAddress() + "]" : address.getHostAddress();
+    }
+
+    public static class Node {
+
+        private final String address;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger bad = new AtomicInteger();
+        private volatile double ewma;
+        private volatile long ejectedUntil;
+
+        private Node(String address) {
+            this.address = address;
+            this.ejectedUntil = System.nanoTime();
+        }
+
+        /**
+         * @return the IP address, in brackets for IPv6, or the host name when it could not be resolved.
+         */
+        public String getAddress() {
+            return address;
+        }
+
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        private boolean isEjected(long now) {
+            return ejectedUntil - now > 0;
+        }
+    }
+
+    public class Call {
+
+        private final Node node;
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Call(Node node, long start) {
+            this.node = node;
+            this.start = start;
+        }
+
+        public Node getNode() {
+            return node;
+        }
+
+        public void success() {
+            if (release()) onSuccess(node, System.nanoTime() - start);
+        }
+
+        public void failure() {
+            if (release()) onBad(node);
+        }
+
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                node.outstanding.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Gradient based concurrency limiter: the limit grows while the observed RTT stays close to the long term RTT
+ * and shrinks as soon as the upstream starts queueing (RTT grows) or dropping requests.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SMOOTHING = 0.2;
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double BACKOFF_RATIO = 0.9;
+    private static final int LONG_RTT_WINDOW = 600;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected;
+
+    private volatile double limit;
+    private double longRtt;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit) throw new IllegalArgumentException("Invalid limits for " + name + ": min=" + minLimit + ", max=" + maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = clamp(initialLimit);
+
+        String prefix = "pix.limiter." + name;
+        this.rejected = Metrics.counter(prefix + ".rejected");
+        Metrics.gauge(prefix + ".limit", this::getLimit);
+        Metrics.gauge(prefix + ".inflight", this::getInFlight);
+    }
+
+    public Optional<Permit> tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return Optional.empty();
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return Optional.of(new Permit(current + 1));
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void onSample(long rtt, int inFlightAtStart) {
+        longRtt = longRtt == 0 ? rtt : longRtt + (rtt - longRtt) / LONG_RTT_WINDOW;
+
+        // the upstream recovered faster than the long window, catch up to avoid a long ramp down
+        if (longRtt > 2 * rtt) longRtt = 2 * rtt;
+
+        // only adjust when the limit is being used, otherwise an idle proxy would grow it without bound
+        if (inFlightAtStart < limit / 2) return;
+
+        double gradient = Math.max(0.5, Math.min(1.0, RTT_TOLERANCE * longRtt / rtt));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        limit = clamp(limit * (1 - SMOOTHING) + newLimit * SMOOTHING);
+    }
+
+    private synchronized void onDropped() {
+        limit = clamp(limit * BACKOFF_RATIO);
+    }
+
+    private double clamp(double value) {
+        return Math.max(minLimit, Math.min(maxLimit, value));
+    }
+
+    public class Permit {
+
+        private final int inFlightAtStart;
+        private final AtomicBoolean sampling = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long start = System.nanoTime();
+
+        private Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        /**
+         * Starts the round trip time sample now instead of at the acquisition, so a permit taken at ingress only
+         * samples the upstream call. Later calls, e.g. from retries, keep the first start.
+         */
+        public void startSample() {
+            if (sampling.compareAndSet(false, true)) start = System.nanoTime();
+        }
+
+        public void success() {
+            if (release()) onSample(System.nanoTime() - start, inFlightAtStart);
+        }
+
+        public void dropped() {
+            if (release()) onDropped();
+        }
+
+        public void ignore() {
+            release();
+        }
+
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+}
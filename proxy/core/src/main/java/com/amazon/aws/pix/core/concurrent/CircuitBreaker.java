@@ -0,0 +1,138 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count based circuit breaker: opens when at least {@code failureRate} of the last {@code windowSize} calls failed,
+ * once {@code minimumCalls} were seen, and rejects every call while open. After {@code openDuration} a single probe
+ * goes through (half-open): its success closes the breaker, its failure opens it again.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final double failureRate;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final boolean[] window;
+    private int position;
+    private int calls;
+    private int failures;
+
+    private volatile State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+
+    private final LongAdder rejected;
+    private final LongAdder opened;
+
+    public CircuitBreaker(String name, double failureRate, int windowSize, int minimumCalls, Duration openDuration) {
+        if (failureRate <= 0 || failureRate > 1) throw new IllegalArgumentException("Invalid failure rate for " + name + ": " + failureRate);
+        if (minimumCalls < 1 || minimumCalls > windowSize) throw new IllegalArgumentException("Invalid window for " + name + ": size=" + windowSize + ", minimum=" + minimumCalls);
+        this.failureRate = failureRate;
+        this.minimumCalls = minimumCalls;
+        this.openNanos = openDuration.toNanos();
+        this.window = new boolean[windowSize];
+
+        String prefix = "pix.breaker." + name;
+        this.rejected = Metrics.counter(prefix + ".rejected");
+        this.opened = Metrics.counter(prefix + ".opened");
+        Metrics.gauge(prefix + ".state", () -> getState().ordinal());
+    }
+
+    public Optional<Permit> tryAcquire() {
+        synchronized (this) {
+            if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+                probing = false;
+            }
+            if (state == State.CLOSED) return Optional.of(new Permit(false));
+            if (state == State.HALF_OPEN && !probing) {
+                probing = true;
+                return Optional.of(new Permit(true));
+            }
+        }
+        rejected.increment();
+        return Optional.empty();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private synchronized void onResult(boolean probe, boolean failure) {
+        if (probe) {
+            if (failure) open();
+            else close();
+            return;
+        }
+        // calls started before the breaker opened don't count towards the next window
+        if (state != State.CLOSED) return;
+
+        if (calls == window.length) {
+            if (window[position]) failures--;
+        } else {
+            calls++;
+        }
+        window[position] = failure;
+        if (failure) failures++;
+        position = (position + 1) % window.length;
+
+        if (calls >= minimumCalls && failures >= failureRate * calls) open();
+    }
+
+    private synchronized void onIgnored(boolean probe) {
+        if (probe && state == State.HALF_OPEN) probing = false;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        reset();
+        opened.increment();
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        reset();
+    }
+
+    private void reset() {
+        position = 0;
+        calls = 0;
+        failures = 0;
+    }
+
+    public class Permit {
+
+        private final boolean probe;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(boolean probe) {
+            this.probe = probe;
+        }
+
+        public void success() {
+            if (released.compareAndSet(false, true)) onResult(probe, false);
+        }
+
+        public void failure() {
+            if (released.compareAndSet(false, true)) onResult(probe, true);
+        }
+
+        /**
+         * Releases the permit without an outcome, e.g. when the call was never made.
+         */
+        public void ignore() {
+            if (released.compareAndSet(false, true)) onIgnored(probe);
+        }
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.amazon.aws.pix.core.concurrent;
+
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    public CircuitBreakerOpenException(String name) {
+        super(String.format("Circuit breaker %s is open", name));
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import java.time.Duration;
+
+/**
+ * Time budget of a request: the proxy timeout, shortened by the budget the caller sends in milliseconds in the
+ * {@code pix-timeout-ms} header, so the upstream call is abandoned before the caller gives up on the proxy.
+ */
+public class Deadline {
+
+    private final long deadline;
+
+    private Deadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos());
+    }
+
+    /**
+     * @param budgetMillis the caller budget, ignored when missing or not a number.
+     */
+    public static Deadline of(String budgetMillis, Duration timeout) {
+        if (budgetMillis != null) {
+            try {
+                Duration budget = Duration.ofMillis(Long.parseLong(budgetMillis.trim()));
+                if (budget.compareTo(timeout) < 0) return after(budget);
+            } catch (NumberFormatException e) {
+                // the proxy timeout applies
+            }
+        }
+        return after(timeout);
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return deadline - System.nanoTime() <= 0;
+    }
+
+}
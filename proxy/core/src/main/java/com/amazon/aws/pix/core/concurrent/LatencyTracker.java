@@ -0,0 +1,58 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A percentile of the latencies of the last {@code windowSize} calls to an upstream. It is recomputed every
+ * {@code windowSize / 8} samples, so reading it on the request path costs a volatile read.
+ */
+public class LatencyTracker {
+
+    private static final int MIN_SAMPLES = 20;
+
+    private final double percentile;
+    private final long[] samples;
+    private final int refreshEvery;
+    private int position;
+    private int count;
+    private int sinceRefresh;
+
+    private volatile long value = -1;
+
+    public LatencyTracker(String name, double percentile, int windowSize) {
+        if (percentile <= 0 || percentile >= 1) throw new IllegalArgumentException("Invalid percentile for " + name + ": " + percentile);
+        if (windowSize < MIN_SAMPLES) throw new IllegalArgumentException("The window of " + name + " must hold at least " + MIN_SAMPLES + " samples");
+        this.percentile = percentile;
+        this.samples = new long[windowSize];
+        this.refreshEvery = Math.max(1, windowSize / 8);
+
+        Metrics.gauge(String.format("pix.latency.%s.p%d-ms", name, Math.round(percentile * 100)), () -> value < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(value));
+    }
+
+    public synchronized void record(long nanos) {
+        samples[position] = nanos;
+        position = (position + 1) % samples.length;
+        if (count < samples.length) count++;
+
+        if (count >= MIN_SAMPLES && ++sinceRefresh >= refreshEvery) {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            value = sorted[Math.max(0, (int) Math.ceil(percentile * count) - 1)];
+            sinceRefresh = 0;
+        }
+    }
+
+    /**
+     * @return the percentile, empty until enough samples were recorded.
+     */
+    public Optional<Duration> get() {
+        long current = value;
+        return current < 0 ? Optional.empty() : Optional.of(Duration.ofNanos(current));
+    }
+
+}
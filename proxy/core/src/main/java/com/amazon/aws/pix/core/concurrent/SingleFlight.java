@@ -0,0 +1,143 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time, concurrent callers of the same key wait for and share its result.
+ * Results accepted by the cacheable predicate can optionally be kept for a short TTL.
+ */
+public class SingleFlight<K, V> {
+
+    private static final int MAX_CACHE_ENTRIES = 10_000;
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final Map<K, CachedValue<V>> cache = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+    private final Predicate<V> cacheable;
+
+    private final LongAdder coalesced;
+    private final LongAdder cacheHits;
+
+    public SingleFlight(String name, Duration ttl, Predicate<V> cacheable) {
+        this.ttlNanos = ttl.toNanos();
+        this.cacheable = cacheable;
+
+        String prefix = "pix.coalescing." + name;
+        this.coalesced = Metrics.counter(prefix + ".coalesced");
+        this.cacheHits = Metrics.counter(prefix + ".cache.hits");
+        Metrics.gauge(prefix + ".inflight", calls::size);
+        Metrics.gauge(prefix + ".cache.size", cache::size);
+    }
+
+    public V execute(K key, Supplier<V> supplier) {
+        if (ttlNanos > 0) {
+            CachedValue<V> cached = cache.get(key);
+            if (cached != null && !cached.isExpired()) {
+                cacheHits.increment();
+                return cached.value;
+            }
+        }
+
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return join(existing);
+        }
+
+        try {
+            V value = supplier.get();
+            if (ttlNanos > 0 && cacheable.test(value)) cache(key, value);
+            call.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, call);
+        }
+    }
+
+    /**
+     * Same as {@link #execute}, without blocking: the supplier starts the call and the callers of the same key share
+     * its future.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> supplier) {
+        if (ttlNanos > 0) {
+            CachedValue<V> cached = cache.get(key);
+            if (cached != null && !cached.isExpired()) {
+                cacheHits.increment();
+                return CompletableFuture.completedFuture(cached.value);
+            }
+        }
+
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing = calls.putIfAbsent(key, call);
+        if (existing != null) {
+            coalesced.increment();
+            return existing;
+        }
+
+        CompletableFuture<V> result;
+        try {
+            result = supplier.get();
+        } catch (RuntimeException e) {
+            calls.remove(key, call);
+            call.completeExceptionally(e);
+            return call;
+        }
+        result.whenComplete((value, throwable) -> {
+            calls.remove(key, call);
+            if (throwable != null) {
+                call.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+            } else {
+                if (ttlNanos > 0 && cacheable.test(value)) cache(key, value);
+                call.complete(value);
+            }
+        });
+        return call;
+    }
+
+    private void cache(K key, V value) {
+        if (cache.size() >= MAX_CACHE_ENTRIES) {
+            cache.values().removeIf(CachedValue::isExpired);
+            if (cache.size() >= MAX_CACHE_ENTRIES) return;
+        }
+        cache.put(key, new CachedValue<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    private V join(CompletableFuture<V> call) {
+        try {
+            return call.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static class CachedValue<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        private CachedValue(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expiresAt > 0;
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Client-side pacing: {@code ratePerSecond} permits are added per second, up to {@code burst}. Callers that can wait
+ * reserve a permit ahead of time and sleep until it is due, so concurrent callers are spread evenly instead of
+ * bursting into the upstream quota.
+ */
+public class TokenBucket {
+
+    private final double permitsPerNano;
+    private final double burst;
+    private double permits;
+    private long lastRefill;
+
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) throw new IllegalArgumentException("Rate and burst must be positive");
+        this.permitsPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.permits = burst;
+        this.lastRefill = System.nanoTime();
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(Duration.ZERO);
+    }
+
+    /**
+     * @return false, without consuming a permit, if none would be available within {@code maxWait} or if the thread is
+     * interrupted while waiting, which keeps its interrupt status.
+     */
+    public boolean tryAcquire(Duration maxWait) {
+        long waitNanos;
+        synchronized (this) {
+            refill();
+            waitNanos = permits >= 1 ? 0 : (long) Math.ceil((1 - permits) / permitsPerNano);
+            if (waitNanos > maxWait.toNanos()) return false;
+            permits -= 1;
+        }
+        long deadline = System.nanoTime() + waitNanos;
+        for (long remaining = waitNanos; remaining > 0; remaining = deadline - System.nanoTime()) {
+            if (Thread.currentThread().isInterrupted()) {
+                synchronized (this) {
+                    permits += 1;
+                }
+                return false;
+            }
+            LockSupport.parkNanos(remaining);
+        }
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        permits = Math.min(burst, permits + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+
+}
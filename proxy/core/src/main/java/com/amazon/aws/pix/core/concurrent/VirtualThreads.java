@@ -0,0 +1,137 @@
+package com.amazon.aws.pix.core.concurrent;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import jdk.jfr.EventSettings;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Virtual threads of JDK 21, looked up at runtime so the proxies still build for and run on JDK 11.
+ * <p>
+ * A virtual thread blocked inside a {@code synchronized} block or a native call (as the JCE providers do around the
+ * HSM and KMS calls) stays pinned to its carrier thread. {@link #monitorPinning(Duration)} counts those pins from the
+ * {@code jdk.VirtualThreadPinned} JFR event in {@code pix.threads.pinned}, and logs each pinning frame once.
+ */
+@Slf4j
+public abstract class VirtualThreads {
+
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    private static final MethodHandle OF_VIRTUAL;
+    private static final MethodHandle NAME;
+    private static final MethodHandle FACTORY;
+    private static final MethodHandle NEW_EXECUTOR;
+
+    static {
+        MethodHandle ofVirtual = null;
+        MethodHandle name = null;
+        MethodHandle factory = null;
+        MethodHandle newExecutor = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Class<?> ofVirtualBuilder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(ofVirtualBuilder));
+            name = lookup.findVirtual(ofVirtualBuilder, "name", MethodType.methodType(ofVirtualBuilder, String.class, long.class));
+            factory = lookup.findVirtual(builder, "factory", MethodType.methodType(ThreadFactory.class));
+            newExecutor = lookup.findStatic(Executors.class, "newThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class, ThreadFactory.class));
+        } catch (ReflectiveOperationException e) {
+            // before JDK 21
+        }
+        OF_VIRTUAL = ofVirtual;
+        NAME = name;
+        FACTORY = factory;
+        NEW_EXECUTOR = newExecutor;
+    }
+
+    private static final Set<String> pinningFrames = ConcurrentHashMap.newKeySet();
+    private static volatile boolean monitoring;
+
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * @return an executor starting a virtual thread, named {@code name-<n>}, per task.
+     */
+    public static ExecutorService newExecutor(String name) {
+        if (!isSupported()) throw new IllegalStateException("Virtual threads need JDK 21 or later");
+        try {
+            Object builder = NAME.invoke(OF_VIRTUAL.invoke(), name + "-", 0L);
+            return (ExecutorService) NEW_EXECUTOR.invoke((ThreadFactory) FACTORY.invoke(builder));
+        } catch (Throwable e) {
+            throw new IllegalStateException("Unable to create the virtual thread executor", e);
+        }
+    }
+
+    /**
+     * Starts, once, a JFR stream of the pins longer than the threshold.
+     */
+    public static synchronized void monitorPinning(Duration threshold) {
+        if (monitoring || !isSupported()) return;
+
+        LongAdder pinned = Metrics.counter("pix.threads.pinned");
+        Consumer<RecordedEvent> onPinned = event -> {
+            pinned.increment();
+            String frame = getFrame(event);
+            if (pinningFrames.add(frame)) {
+                log.warn("virtual thread pinned for {} ms at {}", event.getDuration().toMillis(), frame);
+            }
+        };
+
+        try {
+            Class<?> stream = Class.forName("jdk.jfr.consumer.RecordingStream");
+            Object recording = stream.getConstructor().newInstance();
+            ((EventSettings) stream.getMethod("enable", String.class).invoke(recording, PINNED_EVENT)).withThreshold(threshold).withStackTrace();
+            stream.getMethod("onEvent", String.class, Consumer.class).invoke(recording, PINNED_EVENT, onPinned);
+            Method start = stream.getMethod("start");
+            // startAsync() would run the stream on a non-daemon thread, holding the JVM on shutdown
+            Thread thread = new Thread(() -> {
+                try {
+                    start.invoke(recording);
+                } catch (ReflectiveOperationException e) {
+                    log.warn("Pinned virtual threads monitor stopped", e);
+                }
+            }, "pix-pinning-monitor");
+            thread.setDaemon(true);
+            thread.start();
+            monitoring = true;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Unable to monitor the pinned virtual threads", e);
+        }
+    }
+
+    /**
+     * @return the first frame holding the carrier, skipping the JDK frames.
+     */
+    private static String getFrame(RecordedEvent event) {
+        if (event.getStackTrace() == null) return "unknown";
+        RecordedFrame first = null;
+        for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+            if (frame.getMethod() == null) continue;
+            if (first == null) first = frame;
+            String type = frame.getMethod().getType().getName();
+            if (!type.startsWith("java.") && !type.startsWith("jdk.") && !type.startsWith("sun.")) return toString(frame);
+        }
+        return first == null ? "unknown" : toString(first);
+    }
+
+    private static String toString(RecordedFrame frame) {
+        return String.format("%s.%s:%d", frame.getMethod().getType().getName(), frame.getMethod().getName(), frame.getLineNumber());
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.amazon.aws.pix.core.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Heap bytes allocated by the proxy stages, from {@code com.sun.management.ThreadMXBean}: the total of each stage in
+ * {@code pix.alloc.<stage>.bytes} and its count in {@code pix.alloc.<stage>.calls}. A stage is measured on the thread
+ * that runs it, so stages ending on another thread, and virtual threads, are not counted.
+ */
+public abstract class Allocations {
+
+    private static final com.sun.management.ThreadMXBean THREADS = getThreadMXBean();
+    private static final Map<String, LongAdder[]> STAGES = new ConcurrentHashMap<>();
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 when they are not measured.
+     */
+    public static long current() {
+        if (THREADS == null) return -1;
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static void record(String stage, long start) {
+        if (start < 0) return;
+        long end = current();
+        if (end < start) return;
+
+        LongAdder[] counters = STAGES.computeIfAbsent(stage, key -> new LongAdder[]{
+                Metrics.counter(String.format("pix.alloc.%s.bytes", key)),
+                Metrics.counter(String.format("pix.alloc.%s.calls", key))});
+        counters[0].add(end - start);
+        counters[1].increment();
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadMXBean() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        if (!allocations.isThreadAllocatedMemorySupported() || !allocations.isThreadAllocatedMemoryEnabled()) return null;
+        return allocations;
+    }
+
+}
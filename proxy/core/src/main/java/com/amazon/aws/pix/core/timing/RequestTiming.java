@@ -0,0 +1,131 @@
+package com.amazon.aws.pix.core.timing;
+
+import com.amazon.aws.pix.core.metrics.Allocations;
+import io.opentelemetry.api.GlobalOpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Time spent by a request in each proxy stage. Each stage is also exported as an OpenTelemetry span, child of the
+ * request span, which is a no-op unless an OpenTelemetry SDK or agent is installed, and its heap allocations are
+ * added to the {@link Allocations} metrics.
+ */
+public class RequestTiming {
+
+    public static final String PARSE = "parse";
+    public static final String SIGN = "sign";
+    public static final String UPSTREAM = "upstream";
+    public static final String VERIFY = "verify";
+    public static final String AUDIT = "audit";
+
+    public static final RequestTiming NONE = new RequestTiming();
+
+    private static final Stage NO_STAGE = new Stage(null, null, null);
+
+    private final Tracer tracer;
+    private final Span span;
+    private final Map<String, Long> durations = new LinkedHashMap<>();
+    private final Map<String, Stage> running = new LinkedHashMap<>();
+
+    public RequestTiming(String name) {
+        this.tracer = GlobalOpenTelemetry.getTracer("pix-proxy");
+        this.span = tracer.spanBuilder(name).setSpanKind(SpanKind.SERVER).startSpan();
+    }
+
+    private RequestTiming() {
+        this.tracer = null;
+        this.span = Span.getInvalid();
+    }
+
+    public Stage start(String stage) {
+        if (tracer == null) return NO_STAGE;
+
+        Span stageSpan = tracer.spanBuilder(stage).setParent(Context.root().with(span)).startSpan();
+        Stage started = new Stage(this, stage, stageSpan);
+        synchronized (this) {
+            running.put(stage, started);
+        }
+        return started;
+    }
+
+    public void stop(String stage) {
+        Stage started;
+        synchronized (this) {
+            started = running.get(stage);
+        }
+        if (started != null) started.close();
+    }
+
+    public void end() {
+        List<Stage> stages;
+        synchronized (this) {
+            stages = new ArrayList<>(running.values());
+        }
+        stages.forEach(Stage::close);
+        span.end();
+    }
+
+    public synchronized Map<String, Double> getDurations() {
+        return durations.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, e -> toMillis(e.getValue()), (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Formats the durations like the Server-Timing header, e.g. {@code parse;dur=0.4, sign;dur=12.1}.
+     */
+    public String toHeader() {
+        return getDurations().entrySet().stream()
+                .map(e -> String.format("%s;dur=%.1f", e.getKey(), e.getValue()))
+                .collect(Collectors.joining(", "));
+    }
+
+    private synchronized void record(Stage stage, long nanos) {
+        if (running.get(stage.name) == stage) running.remove(stage.name);
+        durations.merge(stage.name, nanos, Long::sum);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    public static class Stage implements AutoCloseable {
+
+        private final RequestTiming timing;
+        private final String name;
+        private final Span span;
+        private final long start;
+        private final Thread thread;
+        private final long allocated;
+        private boolean closed;
+
+        private Stage(RequestTiming timing, String name, Span span) {
+            this.timing = timing;
+            this.name = name;
+            this.span = span;
+            this.start = System.nanoTime();
+            this.thread = Thread.currentThread();
+            this.allocated = timing == null ? -1 : Allocations.current();
+        }
+
+        @Override
+        public void close() {
+            if (timing == null) return;
+            synchronized (this) {
+                if (closed) return;
+                closed = true;
+            }
+            timing.record(this, System.nanoTime() - start);
+            if (Thread.currentThread() == thread) Allocations.record(name, allocated);
+            span.end();
+        }
+    }
+
+}
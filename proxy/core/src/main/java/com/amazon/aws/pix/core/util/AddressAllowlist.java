@@ -0,0 +1,113 @@
+package com.amazon.aws.pix.core.util;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Caller addresses allowed to use a tenant, as a comma separated list of addresses and CIDR blocks
+ * (e.g. {@code 10.0.1.0/24, 10.0.2.15}). An empty list allows no caller.
+ */
+public class AddressAllowlist {
+
+    public static final AddressAllowlist NONE = new AddressAllowlist(Collections.emptyList());
+
+    private final List<Block> blocks;
+
+    private AddressAllowlist(List<Block> blocks) {
+        this.blocks = blocks;
+    }
+
+    /**
+     * @throws IllegalArgumentException if an entry is not an IP address or a CIDR block.
+     */
+    public static AddressAllowlist parse(String value) {
+        if (value == null) return NONE;
+
+        List<Block> blocks = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            entry = entry.trim();
+            if (entry.isEmpty()) continue;
+            blocks.add(Block.parse(entry));
+        }
+        return new AddressAllowlist(blocks);
+    }
+
+    public boolean allows(SocketAddress address) {
+        return address instanceof InetSocketAddress && allows(((InetSocketAddress) address).getAddress());
+    }
+
+    public boolean allows(String address) {
+        if (address == null || !isLiteral(address.trim())) return false;
+        try {
+            return allows(InetAddress.getByName(address.trim()));
+        } catch (UnknownHostException e) {
+            return false;
+        }
+    }
+
+    public boolean allows(InetAddress address) {
+        if (address == null) return false;
+        byte[] bytes = address.getAddress();
+        for (Block block : blocks) {
+            if (block.contains(bytes)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Only IP literals are accepted, so neither the list nor a caller address causes a DNS lookup.
+     */
+    private static boolean isLiteral(String address) {
+        return !address.isEmpty() && (address.indexOf(':') >= 0 || address.chars().allMatch(c -> c == '.' || Character.isDigit(c)));
+    }
+
+    private static class Block {
+
+        private final byte[] network;
+        private final int prefix;
+
+        private Block(byte[] network, int prefix) {
+            this.network = network;
+            this.prefix = prefix;
+        }
+
+        private static Block parse(String entry) {
+            int slash = entry.indexOf('/');
+            String address = slash < 0 ? entry : entry.substring(0, slash);
+            if (!isLiteral(address)) throw new IllegalArgumentException("Invalid address " + entry);
+
+            byte[] network;
+            try {
+                network = InetAddress.getByName(address).getAddress();
+            } catch (UnknownHostException e) {
+                throw new IllegalArgumentException("Invalid address " + entry, e);
+            }
+
+            int prefix;
+            try {
+                prefix = slash < 0 ? network.length * 8 : Integer.parseInt(entry.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid prefix " + entry, e);
+            }
+            if (prefix < 0 || prefix > network.length * 8) throw new IllegalArgumentException("Invalid prefix " + entry);
+            return new Block(network, prefix);
+        }
+
+        private boolean contains(byte[] address) {
+            if (address.length != network.length) return false;
+            int bits = prefix;
+            for (int i = 0; i < network.length && bits > 0; i++, bits -= 8) {
+                int mask = bits >= 8 ? 0xFF : (0xFF << (8 - bits)) & 0xFF;
+                if ((address[i] & mask) != (network[i] & mask)) return false;
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.amazon.aws.pix.core.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Header projections used on every request (pix headers to echo, non-Camel headers to audit, multi-value headers to
+ * flatten), done in a single pass into presized maps. Prefixes and names match ignoring case, as HTTP header names do.
+ */
+public abstract class HeaderUtil {
+
+    public static final String CAMEL_HEADER_PREFIX = "Camel";
+
+    public static boolean hasPrefix(String name, String prefix) {
+        return name != null && name.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    public static <V> Map<String, V> withPrefix(Map<String, V> headers, String prefix) {
+        Map<String, V> result = new HashMap<>();
+        if (headers == null) return result;
+        for (Map.Entry<String, V> e : headers.entrySet()) {
+            if (hasPrefix(e.getKey(), prefix)) result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    public static <V> Map<String, V> withoutPrefix(Map<String, V> headers, String prefix) {
+        if (headers == null) return new HashMap<>();
+        Map<String, V> result = new HashMap<>(capacity(headers.size()));
+        for (Map.Entry<String, V> e : headers.entrySet()) {
+            if (!hasPrefix(e.getKey(), prefix)) result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @return the headers with their values joined by {@code ", "}, or null if there are no headers.
+     */
+    public static Map<String, String> join(Map<String, List<String>> headers) {
+        if (headers == null) return null;
+        Map<String, String> result = new HashMap<>(capacity(headers.size()));
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            result.put(e.getKey(), join(e.getValue()));
+        }
+        return result;
+    }
+
+    public static Map<String, String> joinWithPrefix(Map<String, List<String>> headers, String prefix) {
+        Map<String, String> result = new HashMap<>();
+        if (headers == null) return result;
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            if (hasPrefix(e.getKey(), prefix)) result.put(e.getKey(), join(e.getValue()));
+        }
+        return result;
+    }
+
+    public static <V> V get(Map<String, V> headers, String name) {
+        if (headers == null) return null;
+        V value = headers.get(name);
+        if (value != null) return value;
+        for (Map.Entry<String, V> e : headers.entrySet()) {
+            if (name.equalsIgnoreCase(e.getKey())) return e.getValue();
+        }
+        return null;
+    }
+
+    private static String join(List<String> values) {
+        if (values == null) return null;
+        return values.size() == 1 ? values.get(0) : String.join(", ", values);
+    }
+
+    private static int capacity(int size) {
+        return (int) (size / 0.75f) + 1;
+    }
+
+}
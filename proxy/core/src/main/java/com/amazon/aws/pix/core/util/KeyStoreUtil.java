@@ -5,37 +5,63 @@ import lombok.SneakyThrows;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.KeyFactory;
 import java.security.KeyStore;
+import java.security.MessageDigest;
 import java.security.PrivateKey;
 import java.security.PublicKey;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
 import java.security.cert.X509Certificate;
 import java.security.spec.PKCS8EncodedKeySpec;
+import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Certificates parsed from PEM content are cached by the SHA-256 of that content, so each PEM is parsed once and the
+ * same immutable certificates are shared by every component; the cache keeps the {@value #MAX_CERTIFICATES} most
+ * recently used bundles. Key stores are built for each call, so no private key is kept here and callers never share
+ * a mutable key store.
+ */
 public abstract class KeyStoreUtil {
 
+    private static final int MAX_CERTIFICATES = 64;
+
+    private static final Map<String, Collection<X509Certificate>> CERTIFICATES = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Collection<X509Certificate>> eldest) {
+            return size() > MAX_CERTIFICATES;
+        }
+    });
+
     @SneakyThrows
     public static KeyStore getKeyStore(File keyStore, String keyStorePassword) {
         KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
-        ks.load(new FileInputStream(keyStore), keyStorePassword.toCharArray());
+        try (InputStream inputStream = new FileInputStream(keyStore)) {
+            ks.load(inputStream, keyStorePassword.toCharArray());
+        }
         return ks;
     }
 
     @SneakyThrows
     public static KeyStore getKeyStoreFromResource(String keyStore, String keyStorePassword) {
         KeyStore ks = KeyStore.getInstance(KeyStore.getDefaultType());
-        ks.load(Thread.currentThread().getContextClassLoader().getResourceAsStream(keyStore), keyStorePassword.toCharArray());
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(keyStore)) {
+            ks.load(inputStream, keyStorePassword.toCharArray());
+        }
         return ks;
     }
 
-    @SneakyThrows
     public static KeyStore generateTrustStore(String aliasPrefix, String certificate) {
         return generateTrustStore(aliasPrefix, getCertificates(certificate));
     }
@@ -67,36 +93,29 @@ public abstract class KeyStoreUtil {
         return keyStore;
     }
 
-    @SneakyThrows
     public static Collection<X509Certificate> getCertificates(String certificate) {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(certificate.getBytes(StandardCharsets.UTF_8));
-        return (Collection<X509Certificate>) certificateFactory.generateCertificates(inputStream);
+        return getCertificates(certificate.getBytes(StandardCharsets.UTF_8));
     }
 
     @SneakyThrows
     public static Collection<X509Certificate> getCertificates(File certificate) {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        return (Collection<X509Certificate>) certificateFactory.generateCertificates(new FileInputStream(certificate));
+        return getCertificates(Files.readAllBytes(certificate.toPath()));
     }
 
-    @SneakyThrows
     public static X509Certificate getCertificate(String certificate) {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        ByteArrayInputStream inputStream = new ByteArrayInputStream(certificate.getBytes(StandardCharsets.UTF_8));
-        return (X509Certificate) certificateFactory.generateCertificate(inputStream);
+        return getCertificates(certificate).iterator().next();
     }
 
-    @SneakyThrows
     public static X509Certificate getCertificate(File certificate) {
-        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        return (X509Certificate) certificateFactory.generateCertificate(new FileInputStream(certificate));
+        return getCertificates(certificate).iterator().next();
     }
 
     @SneakyThrows
     public static X509Certificate getCertificateFromResource(String certificate) {
         CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
-        return (X509Certificate) certificateFactory.generateCertificate(Thread.currentThread().getContextClassLoader().getResourceAsStream(certificate));
+        try (InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(certificate)) {
+            return (X509Certificate) certificateFactory.generateCertificate(inputStream);
+        }
     }
 
     @SneakyThrows
@@ -117,4 +136,31 @@ public abstract class KeyStoreUtil {
         return keyFactory.generatePublic(keySpec);
     }
 
+    private static Collection<X509Certificate> getCertificates(byte[] content) {
+        String key = sha256(content);
+        Collection<X509Certificate> certificates = CERTIFICATES.get(key);
+        if (certificates == null) {
+            // parsed outside of the lock, a concurrent parse of the same content only costs the duplicate work
+            certificates = parseCertificates(content);
+            CERTIFICATES.put(key, certificates);
+        }
+        return certificates;
+    }
+
+    @SneakyThrows
+    private static Collection<X509Certificate> parseCertificates(byte[] content) {
+        CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509");
+        Collection<X509Certificate> certificates = (Collection<X509Certificate>) certificateFactory.generateCertificates(new ByteArrayInputStream(content));
+        if (certificates.isEmpty()) throw new CertificateException("No certificate found");
+        return Collections.unmodifiableList(new ArrayList<>(certificates));
+    }
+
+    @SneakyThrows
+    private static String sha256(byte[] content) {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
 }
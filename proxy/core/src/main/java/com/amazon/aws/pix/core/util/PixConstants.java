@@ -5,5 +5,8 @@ public interface PixConstants {
     String PIX_HEADERS = "pix-headers";
     String PIX_HEADER_PREFIX = "pix-";
     String PIX_HEADER_SIGNATURE_VALID = "pix-signature-valid";
+    String PIX_HEADER_TIMING = "pix-timing";
+    String PIX_HEADER_TENANT = "pix-tenant";
+    String PIX_HEADER_TIMEOUT = "pix-timeout-ms";
 
 }
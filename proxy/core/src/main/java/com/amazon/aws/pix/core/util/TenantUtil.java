@@ -0,0 +1,47 @@
+package com.amazon.aws.pix.core.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A request selects its tenant (signing identity) with the {@code pix-tenant} header or with a
+ * {@code /tenants/{id}} path prefix, requests without either use the default tenant.
+ */
+public abstract class TenantUtil {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String TENANTS_PATH = "tenants/";
+
+    private static final Pattern TENANT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final Pattern TENANT_PATH = Pattern.compile("^/?tenants/([^/]+)(/.*)?$");
+
+    public static String getTenant(String header, String path) {
+        String tenant;
+        if (header != null && !header.trim().isEmpty()) {
+            tenant = header.trim();
+        } else {
+            Matcher matcher = path != null ? TENANT_PATH.matcher(path) : null;
+            tenant = matcher != null && matcher.matches() ? matcher.group(1) : DEFAULT_TENANT;
+        }
+
+        if (!TENANT_ID.matcher(tenant).matches()) {
+            throw new IllegalArgumentException("Invalid tenant");
+        }
+        return tenant;
+    }
+
+    public static String removeTenantPath(String path) {
+        if (path == null) return null;
+        Matcher matcher = TENANT_PATH.matcher(path);
+        if (!matcher.matches()) return path;
+        return matcher.group(2) != null ? matcher.group(2) : "/";
+    }
+
+    public static String getTenantFromParameterName(String path, String name) {
+        String prefix = path + TENANTS_PATH;
+        if (!name.startsWith(prefix)) return null;
+        int end = name.indexOf('/', prefix.length());
+        return end > prefix.length() ? name.substring(prefix.length(), end) : null;
+    }
+
+}
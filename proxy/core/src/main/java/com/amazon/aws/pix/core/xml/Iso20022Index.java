@@ -0,0 +1,103 @@
+package com.amazon.aws.pix.core.xml;
+
+import lombok.NonNull;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+
+import javax.xml.crypto.dsig.XMLSignature;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The {@code AppHdr}, {@code Document}, {@code Sgntr} and {@code ds:Signature} elements of an ISO 20022 message,
+ * collected in a single walk of the DOM and shared through the document by the signer, the dereferencer and the
+ * verifier. The envelope elements match by the namespace of the root element, the signature by the XML-DSig
+ * namespace. Every occurrence is kept, so callers can reject duplicated or nested elements.
+ * <p>
+ * The index reflects the document as parsed: signing replaces the {@code Sgntr} and adds a {@code ds:Signature},
+ * which are not tracked, while the {@code AppHdr} and {@code Document} positions remain valid.
+ */
+public class Iso20022Index {
+
+    private static final String USER_DATA_KEY = Iso20022Index.class.getName();
+
+    private final String namespace;
+    private final List<Element> appHdrs = new ArrayList<>(1);
+    private final List<Element> documents = new ArrayList<>(1);
+    private final List<Element> sgntrs = new ArrayList<>(1);
+    private final List<Element> signatures = new ArrayList<>(1);
+
+    private Iso20022Index(Document document) {
+        Element root = document.getDocumentElement();
+        namespace = root == null ? null : root.getNamespaceURI();
+
+        Node node = root;
+        while (node != null) {
+            if (node.getNodeType() == Node.ELEMENT_NODE) {
+                add((Element) node);
+            }
+
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != null && node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+            }
+            node = node == null || node == root ? null : node.getNextSibling();
+        }
+    }
+
+    /**
+     * @return the index of the document, built on the first call.
+     */
+    public static Iso20022Index of(@NonNull Document document) {
+        Iso20022Index index = (Iso20022Index) document.getUserData(USER_DATA_KEY);
+        if (index == null) {
+            index = new Iso20022Index(document);
+            document.setUserData(USER_DATA_KEY, index, null);
+        }
+        return index;
+    }
+
+    public String getNamespace() {
+        return namespace;
+    }
+
+    public List<Element> getAppHdrs() {
+        return Collections.unmodifiableList(appHdrs);
+    }
+
+    public List<Element> getDocuments() {
+        return Collections.unmodifiableList(documents);
+    }
+
+    public List<Element> getSgntrs() {
+        return Collections.unmodifiableList(sgntrs);
+    }
+
+    public List<Element> getSignatures() {
+        return Collections.unmodifiableList(signatures);
+    }
+
+    private void add(Element element) {
+        String elementNamespace = element.getNamespaceURI();
+        String localName = element.getLocalName();
+
+        if (XMLSignature.XMLNS.equals(elementNamespace)) {
+            if ("Signature".equals(localName)) signatures.add(element);
+        } else if (Objects.equals(namespace, elementNamespace)) {
+            if (Iso20022XmlSigner.APP_HDR.equals(localName)) {
+                appHdrs.add(element);
+            } else if (Iso20022URIDereferencer.DOCUMENT.equals(localName)) {
+                documents.add(element);
+            } else if (Iso20022XmlSigner.SGNTR.equals(localName)) {
+                sgntrs.add(element);
+            }
+        }
+    }
+
+}
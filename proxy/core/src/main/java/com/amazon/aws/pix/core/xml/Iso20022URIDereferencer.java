@@ -1,15 +1,19 @@
 package com.amazon.aws.pix.core.xml;
 
-import com.sun.org.apache.xml.internal.security.signature.XMLSignatureInput;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
-import org.jcp.xml.dsig.internal.dom.ApacheNodeSetData;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import javax.xml.crypto.*;
+import java.util.List;
 
+/**
+ * Resolves the {@code AppHdr} and {@code Document} references of ISO 20022 messages with the public XML-DSig API
+ * only. The element is returned as a node-set (its nodes in document order, without comments), which the JDK
+ * transforms canonicalize to the same bytes as a subtree, applying the secure validation of the context.
+ */
 @AllArgsConstructor
 public class Iso20022URIDereferencer implements URIDereferencer {
 
@@ -26,39 +30,25 @@ public class Iso20022URIDereferencer implements URIDereferencer {
     @Override
     public Data dereference(@NonNull URIReference uriRef, @NonNull XMLCryptoContext context) throws URIReferenceException {
         if (uriRef.getURI() == null) {
-            return getData(context, DOCUMENT);
+            return getData(DOCUMENT);
         } else if (uriRef.getURI().equals(APP_HDR_URI)) {
-            return getData(context, APP_HDR);
+            return getData(APP_HDR);
         } else {
             return defaultDereferencer.dereference(uriRef, context);
         }
     }
 
-    private Data getData(XMLCryptoContext context, String element) throws URIReferenceException {
-        Node node = getNode(element);
-        XMLSignatureInput result = new XMLSignatureInput(node);
-        result.setSecureValidation(secureValidation(context));
-        result.setExcludeComments(true);
-        result.setMIMEType("text/xml");
-        return new ApacheNodeSetData(result);
+    private Data getData(String element) throws URIReferenceException {
+        Iso20022Index index = Iso20022Index.of(document);
+        return new SubtreeData(getNode(DOCUMENT.equals(element) ? index.getDocuments() : index.getAppHdrs(), element));
     }
 
-    private Node getNode(String tagName) throws URIReferenceException {
-        NodeList nodeList = document.getElementsByTagName(tagName);
-        if (nodeList.getLength() == 0) {
+    private Node getNode(List<Element> elements, String tagName) throws URIReferenceException {
+        if (elements.isEmpty()) {
             throw new URIReferenceException("No <" + tagName + "> Element detected");
-        } else if (nodeList.getLength() > 1) {
+        } else if (elements.size() > 1) {
             throw new URIReferenceException("Multiple <" + tagName + "> Elements detected");
         }
-        return nodeList.item(0);
-    }
-
-    private boolean secureValidation(XMLCryptoContext xmlCryptoContext) {
-        return xmlCryptoContext == null ? false : getBoolean(xmlCryptoContext, "org.jcp.xml.dsig.secureValidation");
-    }
-
-    private boolean getBoolean(XMLCryptoContext xmlCryptoContext, String name) {
-        Boolean value = (Boolean) xmlCryptoContext.getProperty(name);
-        return value != null && value;
+        return elements.get(0);
     }
 }
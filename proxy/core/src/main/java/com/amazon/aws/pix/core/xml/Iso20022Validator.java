@@ -0,0 +1,113 @@
+package com.amazon.aws.pix.core.xml;
+
+import lombok.NonNull;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.ByteArrayInputStream;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Streaming (StAX) check of the structure that {@link Iso20022XmlSigner} expects, so malformed messages are rejected
+ * before any DOM parsing or signature work: size limit, allowed root element and namespace, and exactly one
+ * {@code AppHdr} and one {@code Document} right under the root. As in {@link Iso20022Index}, only the elements in the
+ * namespace of the root are envelope elements, wherever they are.
+ */
+public class Iso20022Validator {
+
+    public static final Set<String> DEFAULT_ROOTS = Set.of("Envelope");
+    public static final String DEFAULT_NAMESPACE_PREFIX = "https://www.bcb.gov.br/pi/";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
+
+    private final int maxBytes;
+    private final Set<String> roots;
+    private final String namespacePrefix;
+
+    public Iso20022Validator(int maxBytes) {
+        this(maxBytes, DEFAULT_ROOTS, DEFAULT_NAMESPACE_PREFIX);
+    }
+
+    public Iso20022Validator(int maxBytes, @NonNull Collection<String> roots, @NonNull String namespacePrefix) {
+        this.maxBytes = maxBytes;
+        this.roots = Set.copyOf(roots);
+        this.namespacePrefix = namespacePrefix;
+    }
+
+    /**
+     * @throws XmlValidationException if the message does not have the expected structure.
+     */
+    public void validate(@NonNull byte[] xml) {
+        if (maxBytes > 0 && xml.length > maxBytes) {
+            throw new XmlValidationException(String.format("Message size %d exceeds the limit of %d bytes", xml.length, maxBytes));
+        }
+
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(xml));
+
+            int depth = 0;
+            String namespace = null;
+            int appHdr = 0;
+            int document = 0;
+            while (reader.hasNext()) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                    String name = reader.getLocalName();
+                    boolean envelope = depth > 1 && Objects.equals(namespace, reader.getNamespaceURI());
+                    if (depth == 1) {
+                        namespace = reader.getNamespaceURI();
+                        validateRoot(name, namespace);
+                    } else if (envelope && Iso20022XmlSigner.APP_HDR.equals(name)) {
+                        if (depth != 2 || ++appHdr > 1) throw new XmlValidationException("Multiple or nested <AppHdr> Elements detected");
+                    } else if (envelope && Iso20022URIDereferencer.DOCUMENT.equals(name)) {
+                        if (depth != 2 || ++document > 1) throw new XmlValidationException("Multiple or nested <Document> Elements detected");
+                    }
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                } else if (event == XMLStreamConstants.DTD) {
+                    throw new XmlValidationException("DOCTYPE is not allowed");
+                }
+            }
+
+            if (appHdr == 0) throw new XmlValidationException("No <AppHdr> Element detected");
+            if (document == 0) throw new XmlValidationException("No <Document> Element detected");
+        } catch (XMLStreamException e) {
+            throw new XmlValidationException("Malformed XML: " + e.getMessage(), e);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private void validateRoot(String name, String namespace) {
+        if (!roots.contains(name)) {
+            throw new XmlValidationException(String.format("Root element <%s> is not allowed", name));
+        }
+        if (!namespacePrefix.isEmpty() && (namespace == null || !namespace.startsWith(namespacePrefix))) {
+            throw new XmlValidationException(String.format("Namespace %s is not allowed", namespace));
+        }
+    }
+
+    private static void close(XMLStreamReader reader) {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (XMLStreamException e) {
+            // nothing to release, the input is in memory
+        }
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        return factory;
+    }
+
+}
@@ -5,7 +5,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import javax.xml.crypto.dsig.Reference;
 import javax.xml.crypto.dsig.Transform;
@@ -35,18 +34,14 @@ public class Iso20022XmlSigner extends XmlSigner {
         super(privateKey, certificate, trustStore);
     }
 
+    public Iso20022XmlSigner(@NonNull PrivateKey privateKey, @NonNull X509Certificate certificate, @NonNull KeyStore trustStore, @NonNull XmlSignatureAlgorithm algorithm) {
+        super(privateKey, certificate, trustStore, algorithm);
+    }
+
     @Override
     protected List<Reference> getReferences(XMLSignatureFactory signatureFactory, KeyInfo keyInfo) throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
         return List.of(
-                signatureFactory.newReference(
-                        ID_PREFIX_URI + keyInfo.getId(),
-                        signatureFactory.newDigestMethod(xmlDigestMethod, null),
-                        List.of(
-                                signatureFactory.newTransform(canonicalizationMethod, (TransformParameterSpec) null)
-                        ),
-                        null,
-                        null
-                ),
+                getKeyInfoReference(signatureFactory, keyInfo),
                 signatureFactory.newReference(
                         APP_HDR_URI,
                         signatureFactory.newDigestMethod(xmlDigestMethod, null),
@@ -69,25 +64,36 @@ public class Iso20022XmlSigner extends XmlSigner {
         );
     }
 
+    @Override
+    protected String getReferenceName(int index, Reference reference) {
+        if (reference.getURI() == null) return Iso20022URIDereferencer.DOCUMENT;
+        return reference.getURI().isEmpty() ? APP_HDR : reference.getURI();
+    }
+
     @Override
     protected Element getSignatureEnvelop(Document document) {
-        NodeList nodeList = document.getElementsByTagName(SGNTR);
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node node = nodeList.item(i);
-            if (node.getParentNode().getNodeName().equals(APP_HDR)) {
-                node.getParentNode().removeChild(node);
+        Iso20022Index index = Iso20022Index.of(document);
+        for (Element sgntr : index.getSgntrs()) {
+            if (index.getAppHdrs().contains(sgntr.getParentNode())) {
+                sgntr.getParentNode().removeChild(sgntr);
             }
         }
 
-        Node appHdr = getNodeByTagName(document, APP_HDR);
-        if (appHdr == null) throw new IllegalStateException("No <" + APP_HDR + "> Element found");
+        if (index.getAppHdrs().isEmpty()) throw new IllegalStateException("No <" + APP_HDR + "> Element found");
+        Element appHdr = index.getAppHdrs().get(0);
 
-        Element sgntr = document.createElement(SGNTR);
+        Element sgntr = document.createElementNS(index.getNamespace(), SGNTR);
         appHdr.appendChild(sgntr);
 
         return sgntr;
     }
 
+    @Override
+    protected Node getSignatureNode(Document document) {
+        List<Element> signatures = Iso20022Index.of(document).getSignatures();
+        return signatures.isEmpty() ? null : signatures.get(0);
+    }
+
     @Override
     protected DOMSignContext getSignContext(XMLSignatureFactory signatureFactory, Element signatureEnvelop) {
         DOMSignContext domSignContext = super.getSignContext(signatureFactory, signatureEnvelop);
@@ -0,0 +1,108 @@
+package com.amazon.aws.pix.core.xml;
+
+import org.w3c.dom.Node;
+
+import javax.xml.crypto.Data;
+import javax.xml.crypto.MarshalException;
+import javax.xml.crypto.OctetStreamData;
+import javax.xml.crypto.dom.DOMStructure;
+import javax.xml.crypto.dsig.TransformException;
+import javax.xml.crypto.dsig.TransformService;
+import javax.xml.crypto.dsig.dom.DOMSignContext;
+import javax.xml.crypto.dsig.keyinfo.KeyInfo;
+import javax.xml.crypto.dsig.spec.TransformParameterSpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Digest of the {@code KeyInfo} reference. The element only changes in its {@code Id} from one signature to the next,
+ * and the exclusive canonicalization does not depend on where it is placed, so its canonical bytes before and after
+ * the {@code Id} value are computed once and each signature only digests the {@code Id}.
+ */
+class KeyInfoDigest {
+
+    static final String TEMPLATE_ID = "pix-key-info-template";
+
+    private final String digestAlgorithm;
+    private final byte[] prefix;
+    private final byte[] suffix;
+    private final MessageDigest prefixDigest;
+
+    /**
+     * @param keyInfo the signer {@code KeyInfo} with the {@link #TEMPLATE_ID} Id.
+     * @param context a sign context of the signer, the template is added to its parent.
+     */
+    KeyInfoDigest(KeyInfo keyInfo, DOMSignContext context, String canonicalizationMethod, String digestAlgorithm)
+            throws GeneralSecurityException, MarshalException, TransformException, IOException {
+        Node parent = context.getParent();
+        keyInfo.marshal(new DOMStructure(parent), context);
+
+        TransformService canonicalization = TransformService.getInstance(canonicalizationMethod, "DOM");
+        canonicalization.init((TransformParameterSpec) null);
+        byte[] canonical = readAllBytes(canonicalization.transform(new SubtreeData(parent.getLastChild()), context));
+
+        byte[] id = TEMPLATE_ID.getBytes(StandardCharsets.UTF_8);
+        int index = indexOf(canonical, id, 0);
+        if (index < 0 || indexOf(canonical, id, index + 1) >= 0) {
+            throw new IllegalStateException("KeyInfo Id not found once in its canonical form");
+        }
+
+        this.digestAlgorithm = digestAlgorithm;
+        this.prefix = Arrays.copyOfRange(canonical, 0, index);
+        this.suffix = Arrays.copyOfRange(canonical, index + id.length, canonical.length);
+
+        MessageDigest prefixDigest = MessageDigest.getInstance(digestAlgorithm);
+        prefixDigest.update(prefix);
+        this.prefixDigest = isCloneable(prefixDigest) ? prefixDigest : null;
+    }
+
+    /**
+     * @param id the {@code KeyInfo} Id, which must not need escaping (as the UUIDs used by {@link XmlSigner}).
+     */
+    byte[] digest(String id) throws NoSuchAlgorithmException {
+        MessageDigest digest = newDigest();
+        digest.update(id.getBytes(StandardCharsets.UTF_8));
+        return digest.digest(suffix);
+    }
+
+    private MessageDigest newDigest() throws NoSuchAlgorithmException {
+        if (prefixDigest != null) {
+            try {
+                return (MessageDigest) prefixDigest.clone();
+            } catch (CloneNotSupportedException e) {
+                // checked on creation
+            }
+        }
+        MessageDigest digest = MessageDigest.getInstance(digestAlgorithm);
+        digest.update(prefix);
+        return digest;
+    }
+
+    private static boolean isCloneable(MessageDigest digest) {
+        try {
+            digest.clone();
+            return true;
+        } catch (CloneNotSupportedException e) {
+            return false;
+        }
+    }
+
+    private static byte[] readAllBytes(Data data) throws IOException {
+        try (InputStream inputStream = ((OctetStreamData) data).getOctetStream()) {
+            return inputStream.readAllBytes();
+        }
+    }
+
+    private static int indexOf(byte[] bytes, byte[] value, int from) {
+        for (int i = from; i <= bytes.length - value.length; i++) {
+            if (Arrays.equals(bytes, i, i + value.length, value, 0, value.length)) return i;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,44 @@
+package com.amazon.aws.pix.core.xml;
+
+import lombok.AllArgsConstructor;
+import org.w3c.dom.Node;
+
+import javax.xml.crypto.NodeSetData;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The nodes of an element subtree in document order, without comments, which the JDK transforms canonicalize to the
+ * same bytes as the subtree itself.
+ */
+@AllArgsConstructor
+class SubtreeData implements NodeSetData<Node> {
+
+    private final Node root;
+
+    /**
+     * Attributes are not included, the transforms add those of each element.
+     */
+    @Override
+    public Iterator<Node> iterator() {
+        List<Node> nodes = new ArrayList<>();
+        Node node = root;
+        while (node != null) {
+            if (node.getNodeType() != Node.COMMENT_NODE) {
+                nodes.add(node);
+            }
+
+            if (node.getFirstChild() != null) {
+                node = node.getFirstChild();
+                continue;
+            }
+            while (node != null && node != root && node.getNextSibling() == null) {
+                node = node.getParentNode();
+            }
+            node = node == null || node == root ? null : node.getNextSibling();
+        }
+        return nodes.iterator();
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.amazon.aws.pix.core.xml;
+
+import lombok.Value;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Outcome of {@link XmlSigner#validate}: which reference failed (if any), the key that signed the message and the
+ * time spent checking the digests and the signature value, in milliseconds.
+ */
+@Value
+public class VerificationResult {
+
+    boolean valid;
+    String signatureMethod;
+    String failedReference;
+    String key;
+    String error;
+    double digestMillis;
+    double signatureMillis;
+
+    public static VerificationResult invalid(String error) {
+        return new VerificationResult(false, null, null, null, error, 0, 0);
+    }
+
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("valid", valid);
+        if (signatureMethod != null) map.put("signature_method", signatureMethod);
+        if (failedReference != null) map.put("failed_reference", failedReference);
+        if (key != null) map.put("key", key);
+        if (error != null) map.put("error", error);
+        map.put("digest_ms", String.format("%.3f", digestMillis));
+        map.put("signature_ms", String.format("%.3f", signatureMillis));
+        return map;
+    }
+
+}
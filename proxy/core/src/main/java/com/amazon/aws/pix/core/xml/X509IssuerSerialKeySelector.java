@@ -25,13 +25,25 @@ public class X509IssuerSerialKeySelector extends KeySelector {
 
     @Override
     public KeySelectorResult select(@NonNull KeyInfo keyInfo, Purpose purpose, AlgorithmMethod algorithmMethod, XMLCryptoContext xmlCryptoContext) throws KeySelectorException {
+        PublicKey publicKey;
         try {
             X509Data x509Data = (X509Data) keyInfo.getContent().get(0);
             X509IssuerSerial x509IssuerSerial = (X509IssuerSerial) x509Data.getContent().get(0);
-            return () -> getPublicKey(x509IssuerSerial);
+            publicKey = getPublicKey(x509IssuerSerial);
         } catch (Exception e) {
             throw new KeySelectorException("Failed to find Certificate", e);
         }
+
+        if (algorithmMethod != null && !isCompatible(publicKey, algorithmMethod.getAlgorithm())) {
+            throw new KeySelectorException(String.format("Certificate key %s does not match the signature method %s", publicKey.getAlgorithm(), algorithmMethod.getAlgorithm()));
+        }
+        return () -> publicKey;
+    }
+
+    private boolean isCompatible(PublicKey publicKey, String signatureMethod) {
+        return XmlSignatureAlgorithm.fromSignatureMethod(signatureMethod)
+                .map(algorithm -> algorithm.getKeyAlgorithm().equals(publicKey.getAlgorithm()))
+                .orElse(false);
     }
 
     @SneakyThrows
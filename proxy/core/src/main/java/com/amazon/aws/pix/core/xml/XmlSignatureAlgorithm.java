@@ -0,0 +1,37 @@
+package com.amazon.aws.pix.core.xml;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import javax.xml.crypto.dsig.DigestMethod;
+import javax.xml.crypto.dsig.SignatureMethod;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Signature and digest methods supported by {@link XmlSigner}. RSA-PSS uses the RSASSA-PSS with MGF1 URIs of RFC 6931.
+ */
+@Getter
+@AllArgsConstructor
+public enum XmlSignatureAlgorithm {
+
+    RSA_SHA256(SignatureMethod.RSA_SHA256, DigestMethod.SHA256, "SHA-256", "RSA"),
+    RSA_SHA384(SignatureMethod.RSA_SHA384, DigestMethod.SHA384, "SHA-384", "RSA"),
+    RSA_SHA512(SignatureMethod.RSA_SHA512, DigestMethod.SHA512, "SHA-512", "RSA"),
+    RSA_PSS_SHA256("http://www.w3.org/2007/05/xmldsig-more#sha256-rsa-MGF1", DigestMethod.SHA256, "SHA-256", "RSA"),
+    RSA_PSS_SHA384("http://www.w3.org/2007/05/xmldsig-more#sha384-rsa-MGF1", DigestMethod.SHA384, "SHA-384", "RSA"),
+    RSA_PSS_SHA512("http://www.w3.org/2007/05/xmldsig-more#sha512-rsa-MGF1", DigestMethod.SHA512, "SHA-512", "RSA"),
+    ECDSA_SHA256(SignatureMethod.ECDSA_SHA256, DigestMethod.SHA256, "SHA-256", "EC"),
+    ECDSA_SHA384(SignatureMethod.ECDSA_SHA384, DigestMethod.SHA384, "SHA-384", "EC"),
+    ECDSA_SHA512(SignatureMethod.ECDSA_SHA512, DigestMethod.SHA512, "SHA-512", "EC");
+
+    private final String signatureMethod;
+    private final String digestMethod;
+    private final String digestAlgorithm;
+    private final String keyAlgorithm;
+
+    public static Optional<XmlSignatureAlgorithm> fromSignatureMethod(String signatureMethod) {
+        return Arrays.stream(values()).filter(a -> a.signatureMethod.equals(signatureMethod)).findFirst();
+    }
+
+}
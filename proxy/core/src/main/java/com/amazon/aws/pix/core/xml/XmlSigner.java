@@ -1,5 +1,6 @@
 package com.amazon.aws.pix.core.xml;
 
+import com.amazon.aws.pix.core.timing.RequestTiming;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.w3c.dom.Document;
@@ -37,7 +38,6 @@ import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
 
@@ -49,24 +49,46 @@ public class XmlSigner {
 
     protected final KeySelector keySelector;
 
+    protected final XmlSignatureAlgorithm algorithm;
     protected final String xmlDigestMethod;
     protected final String xmlSignatureMethod;
     protected final String canonicalizationMethod;
 
+    private volatile KeyInfoDigest keyInfoDigest;
+
     public XmlSigner(@NonNull PrivateKey privateKey, @NonNull X509Certificate certificate,
             @NonNull KeyStore trustStore) {
+        this(privateKey, certificate, trustStore, XmlSignatureAlgorithm.RSA_SHA256);
+    }
+
+    public XmlSigner(@NonNull PrivateKey privateKey, @NonNull X509Certificate certificate,
+            @NonNull KeyStore trustStore, @NonNull XmlSignatureAlgorithm algorithm) {
+        if (!algorithm.getKeyAlgorithm().equals(certificate.getPublicKey().getAlgorithm())) {
+            throw new IllegalArgumentException(String.format("%s requires a %s key, but the certificate key is %s",
+                    algorithm, algorithm.getKeyAlgorithm(), certificate.getPublicKey().getAlgorithm()));
+        }
+
         this.privateKey = privateKey;
         this.certificate = certificate;
 
         this.keySelector = new X509IssuerSerialKeySelector(trustStore);
 
-        this.xmlDigestMethod = DigestMethod.SHA256;
-        this.xmlSignatureMethod = SignatureMethod.RSA_SHA256;
+        this.algorithm = algorithm;
+        this.xmlDigestMethod = algorithm.getDigestMethod();
+        this.xmlSignatureMethod = algorithm.getSignatureMethod();
         this.canonicalizationMethod = CanonicalizationMethod.EXCLUSIVE;
     }
 
+    public XmlSignatureAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
     public String sign(@NonNull String xml) {
-        ByteArrayOutputStream xmlSigned = sign(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        return sign(xml, RequestTiming.NONE);
+    }
+
+    public String sign(@NonNull String xml, @NonNull RequestTiming timing) {
+        ByteArrayOutputStream xmlSigned = sign(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), timing);
         return new String(xmlSigned.toByteArray(), StandardCharsets.UTF_8);
     }
 
@@ -76,8 +98,18 @@ public class XmlSigner {
     }
 
     public ByteArrayOutputStream sign(@NonNull InputStream xml) {
-        try {
-            Document document = getDocument(xml);
+        return sign(xml, RequestTiming.NONE);
+    }
+
+    public ByteArrayOutputStream sign(@NonNull InputStream xml, @NonNull RequestTiming timing) {
+        Document document;
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.PARSE)) {
+            document = getDocument(xml);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.SIGN)) {
             XMLSignatureFactory signatureFactory = XMLSignatureFactory.getInstance();
             KeyInfo keyInfo = getKeyInfo(signatureFactory);
             List<Reference> references = getReferences(signatureFactory, keyInfo);
@@ -93,7 +125,11 @@ public class XmlSigner {
     }
 
     public boolean verify(@NonNull String xml) {
-        return verify(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+        return verify(xml, RequestTiming.NONE);
+    }
+
+    public boolean verify(@NonNull String xml, @NonNull RequestTiming timing) {
+        return validate(xml, timing).isValid();
     }
 
     public boolean verify(@NonNull byte[] xml) {
@@ -101,12 +137,35 @@ public class XmlSigner {
     }
 
     public boolean verify(@NonNull InputStream xml) {
-        try {
-            Document document = getDocument(xml);
-            Node signatureNode = getNodeByTagNameNS(document, XMLSignature.XMLNS, "Signature");
+        return verify(xml, RequestTiming.NONE);
+    }
+
+    public boolean verify(@NonNull InputStream xml, @NonNull RequestTiming timing) {
+        return validate(xml, timing).isValid();
+    }
+
+    public VerificationResult validate(@NonNull String xml, @NonNull RequestTiming timing) {
+        return validate(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), timing);
+    }
+
+    /**
+     * Checks the reference digests first and only then the signature value, so a tampered message fails before the
+     * public key operation. Each check runs once, the result carries what failed.
+     */
+    public VerificationResult validate(@NonNull InputStream xml, @NonNull RequestTiming timing) {
+        Document document;
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.PARSE)) {
+            document = getDocument(xml);
+        } catch (Exception e) {
+            log.error("failed to verify signature", e);
+            return VerificationResult.invalid("Failed to parse: " + e.getMessage());
+        }
+
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.VERIFY)) {
+            Node signatureNode = getSignatureNode(document);
             if (signatureNode == null) {
                 log.error("No Signature found!");
-                return false;
+                return VerificationResult.invalid("No Signature found");
             }
 
             XMLSignatureFactory signatureFactory = XMLSignatureFactory.getInstance();
@@ -114,28 +173,35 @@ public class XmlSigner {
             DOMValidateContext validateContext = getValidateContext(signatureFactory, signatureNode);
             XMLSignature signature = signatureFactory.unmarshalXMLSignature(validateContext);
 
-            boolean valid = signature.validate(validateContext);
+            String signatureMethod = signature.getSignedInfo().getSignatureMethod().getAlgorithm();
+            if (!XmlSignatureAlgorithm.fromSignatureMethod(signatureMethod).isPresent()) {
+                log.error("Unsupported signature method {}", signatureMethod);
+                return new VerificationResult(false, signatureMethod, null, null, "Unsupported signature method", 0, 0);
+            }
 
-            if (!valid) {
-                StringBuilder error = new StringBuilder();
-                error.append("Signature failed core validation!").append(System.lineSeparator());
-                boolean validStatus = signature.getSignatureValue().validate(validateContext);
-                error.append("signature validation status: ").append(validStatus).append(System.lineSeparator());
-                if (!validStatus) {
-                    Iterator<Reference> referenceIterator = signature.getSignedInfo().getReferences().iterator();
-                    for (int i = 0; referenceIterator.hasNext(); i++) {
-                        error.append("ref[").append(i).append("] validity status: ")
-                                .append(referenceIterator.next().validate(validateContext))
-                                .append(System.lineSeparator());
-                    }
-                    log.error(error.toString());
+            String key = getKeyName(signature.getKeyInfo());
+
+            long start = System.nanoTime();
+            List<Reference> references = signature.getSignedInfo().getReferences();
+            for (int i = 0; i < references.size(); i++) {
+                if (!references.get(i).validate(validateContext)) {
+                    String reference = getReferenceName(i, references.get(i));
+                    log.error("Signature failed core validation! reference {} digest does not match", reference);
+                    return new VerificationResult(false, signatureMethod, reference, key, "Reference digest mismatch", toMillis(System.nanoTime() - start), 0);
                 }
             }
 
-            return valid;
+            long digested = System.nanoTime();
+            boolean valid = signature.getSignatureValue().validate(validateContext);
+            double signatureMillis = toMillis(System.nanoTime() - digested);
+            if (!valid) {
+                log.error("Signature failed core validation! signature value does not match, key {}", key);
+            }
+
+            return new VerificationResult(valid, signatureMethod, null, key, valid ? null : "Signature value mismatch", toMillis(digested - start), signatureMillis);
         } catch (Exception e) {
             log.error("failed to verify signature", e);
-            return false;
+            return VerificationResult.invalid(e.getMessage());
         }
     }
 
@@ -157,23 +223,55 @@ public class XmlSigner {
     }
 
     protected KeyInfo getKeyInfo(XMLSignatureFactory signatureFactory) {
+        return getKeyInfo(signatureFactory, UUID.randomUUID().toString());
+    }
+
+    protected KeyInfo getKeyInfo(XMLSignatureFactory signatureFactory, String id) {
         KeyInfoFactory keyInfoFactory = signatureFactory.getKeyInfoFactory();
         X509IssuerSerial x509IssuerSerial = keyInfoFactory
                 .newX509IssuerSerial(certificate.getSubjectX500Principal().getName(), certificate.getSerialNumber());
         X509Data x509Data = keyInfoFactory.newX509Data(Collections.singletonList(x509IssuerSerial));
-        return keyInfoFactory.newKeyInfo(Collections.singletonList(x509Data), UUID.randomUUID().toString());
+        return keyInfoFactory.newKeyInfo(Collections.singletonList(x509Data), id);
+    }
+
+    /**
+     * The {@code KeyInfo} reference, with its digest computed from the canonical form cached by {@link KeyInfoDigest}
+     * instead of canonicalizing the element on each signature.
+     */
+    protected Reference getKeyInfoReference(XMLSignatureFactory signatureFactory, KeyInfo keyInfo)
+            throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
+        return signatureFactory.newReference(
+                "#" + keyInfo.getId(),
+                signatureFactory.newDigestMethod(xmlDigestMethod, null),
+                List.of(
+                        signatureFactory.newTransform(canonicalizationMethod, (TransformParameterSpec) null)),
+                null,
+                null,
+                getKeyInfoDigest(signatureFactory).digest(keyInfo.getId()));
+    }
+
+    private KeyInfoDigest getKeyInfoDigest(XMLSignatureFactory signatureFactory) {
+        if (keyInfoDigest == null) {
+            try {
+                DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+                dbf.setNamespaceAware(true);
+                Document document = dbf.newDocumentBuilder().newDocument();
+                Element signatureEnvelop = document.createElementNS(XMLSignature.XMLNS, "Signature");
+                document.appendChild(signatureEnvelop);
+
+                keyInfoDigest = new KeyInfoDigest(getKeyInfo(signatureFactory, KeyInfoDigest.TEMPLATE_ID),
+                        getSignContext(signatureFactory, signatureEnvelop), canonicalizationMethod, algorithm.getDigestAlgorithm());
+            } catch (Exception e) {
+                throw new IllegalStateException("Unable to canonicalize the KeyInfo", e);
+            }
+        }
+        return keyInfoDigest;
     }
 
     protected List<Reference> getReferences(XMLSignatureFactory signatureFactory, KeyInfo keyInfo)
             throws InvalidAlgorithmParameterException, NoSuchAlgorithmException {
         return List.of(
-                signatureFactory.newReference(
-                        "#" + keyInfo.getId(),
-                        signatureFactory.newDigestMethod(xmlDigestMethod, null),
-                        List.of(
-                                signatureFactory.newTransform(canonicalizationMethod, (TransformParameterSpec) null)),
-                        null,
-                        null),
+                getKeyInfoReference(signatureFactory, keyInfo),
                 signatureFactory.newReference(
                         "", // in this case we are signing the whole document, so the URI of ""
                         signatureFactory.newDigestMethod(xmlDigestMethod, null),
@@ -196,6 +294,10 @@ public class XmlSigner {
         return document.getDocumentElement();
     }
 
+    protected Node getSignatureNode(Document document) {
+        return getNodeByTagNameNS(document, XMLSignature.XMLNS, "Signature");
+    }
+
     protected ByteArrayOutputStream transform(Document document) throws TransformerException {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         TransformerFactory tf = TransformerFactory.newInstance();
@@ -216,6 +318,30 @@ public class XmlSigner {
         return nodeList.getLength() > 0 ? nodeList.item(0) : null;
     }
 
+    protected String getReferenceName(int index, Reference reference) {
+        if (reference.getURI() == null) return String.format("ref[%d]", index);
+        return reference.getURI().isEmpty() ? "Document" : reference.getURI();
+    }
+
+    protected String getKeyName(KeyInfo keyInfo) {
+        if (keyInfo == null) return null;
+        for (Object content : keyInfo.getContent()) {
+            if (content instanceof X509Data) {
+                for (Object data : ((X509Data) content).getContent()) {
+                    if (data instanceof X509IssuerSerial) {
+                        X509IssuerSerial issuerSerial = (X509IssuerSerial) data;
+                        return String.format("%s, serial %s", issuerSerial.getIssuerName(), issuerSerial.getSerialNumber());
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
     protected DOMValidateContext getValidateContext(XMLSignatureFactory signatureFactory, Node signatureNode) {
         return new DOMValidateContext(keySelector, signatureNode);
     }
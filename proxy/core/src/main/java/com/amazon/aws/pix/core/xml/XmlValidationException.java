@@ -0,0 +1,13 @@
+package com.amazon.aws.pix.core.xml;
+
+public class XmlValidationException extends RuntimeException {
+
+    public XmlValidationException(String message) {
+        super(message);
+    }
+
+    public XmlValidationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+}
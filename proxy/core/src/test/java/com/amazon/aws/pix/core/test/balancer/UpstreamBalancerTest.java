@@ -0,0 +1,57 @@
+package com.amazon.aws.pix.core.test.balancer;
+
+import com.amazon.aws.pix.core.balancer.UpstreamBalancer;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class UpstreamBalancerTest {
+
+    @Test
+    public void testSpreadAndEject() throws Exception {
+        AtomicReference<InetAddress[]> addresses = new AtomicReference<>(new InetAddress[]{address(1), address(2), address(3), address(4)});
+        UpstreamBalancer balancer = new UpstreamBalancer("test", "bcb.test", host -> addresses.get(), UpstreamBalancer.Strategy.LEAST_OUTSTANDING,
+                Duration.ZERO, 3, 3.0, Duration.ofMinutes(1));
+        Assert.assertEquals(4, balancer.getNodes().size());
+
+        Set<String> selected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            selected.add(balancer.select().getNode().getAddress());
+        }
+        Assert.assertEquals(4, selected.size());
+        balancer.getNodes().forEach(node -> Assert.assertTrue(node.getOutstanding() > 10));
+
+        UpstreamBalancer.Node failing = balancer.getNodes().get(0);
+        for (int i = 0; i < 3; i++) {
+            UpstreamBalancer.Call call = balancer.select();
+            while (call.getNode() != failing) {
+                call.ignore();
+                call = balancer.select();
+            }
+            call.failure();
+        }
+        Assert.assertEquals(1L, (long) Metrics.snapshot().get("pix.balancer.test.ejected"));
+
+        addresses.set(new InetAddress[]{address(1), address(5)});
+        balancer.refresh();
+        Assert.assertEquals(2, balancer.getNodes().size());
+        Assert.assertSame(failing, balancer.getNodes().get(0));
+        Assert.assertEquals("10.0.0.5", balancer.getNodes().get(1).getAddress());
+        for (int i = 0; i < 10; i++) {
+            UpstreamBalancer.Call call = balancer.select();
+            Assert.assertNotSame(failing, call.getNode());
+            call.success();
+        }
+    }
+
+    private InetAddress address(int last) throws Exception {
+        return InetAddress.getByAddress(new byte[]{10, 0, 0, (byte) last});
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.amazon.aws.pix.core.test.concurrent;
+
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    public void testReject() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-reject", 2, 1, 10);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.tryAcquire().get();
+        limiter.tryAcquire().get();
+        Assert.assertFalse(limiter.tryAcquire().isPresent());
+        Assert.assertEquals(1L, (long) Metrics.snapshot().get("pix.limiter.test-reject.rejected"));
+        Assert.assertEquals(2L, (long) Metrics.snapshot().get("pix.limiter.test-reject.inflight"));
+
+        first.ignore();
+        Assert.assertTrue(limiter.tryAcquire().isPresent());
+    }
+
+    @Test
+    public void testIncrease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-increase", 10, 1, 20);
+
+        round(limiter, 5);
+        Assert.assertTrue(limiter.getLimit() > 10);
+    }
+
+    @Test
+    public void testDecrease() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-decrease", 10, 1, 100);
+
+        round(limiter, 1);
+        int limit = limiter.getLimit();
+        round(limiter, 50);
+        Assert.assertTrue(limiter.getLimit() < limit);
+
+        limit = limiter.getLimit();
+        limiter.tryAcquire().get().dropped();
+        Assert.assertTrue(limiter.getLimit() < limit);
+    }
+
+    @Test
+    public void testClamp() throws InterruptedException {
+        Assert.assertEquals(10, new AdaptiveConcurrencyLimiter("test-clamp-initial", 100, 1, 10).getLimit());
+        Assert.assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter("test-clamp-invalid", 5, 0, 10));
+        Assert.assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter("test-clamp-invalid", 5, 10, 5));
+
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-clamp", 5, 2, 8);
+        for (int i = 0; i < 20; i++) round(limiter, 5);
+        Assert.assertEquals(8, limiter.getLimit());
+
+        for (int i = 0; i < 20; i++) limiter.tryAcquire().get().dropped();
+        Assert.assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testReleaseOnce() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-release", 10, 1, 10);
+
+        AdaptiveConcurrencyLimiter.Permit permit = limiter.tryAcquire().get();
+        permit.success();
+        permit.dropped();
+        permit.ignore();
+        Assert.assertEquals(0, limiter.getInFlight());
+        Assert.assertEquals(10, limiter.getLimit());
+
+        permit = limiter.tryAcquire().get();
+        permit.dropped();
+        permit.dropped();
+        Assert.assertEquals(0, limiter.getInFlight());
+        Assert.assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testStartSample() throws InterruptedException {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test-sample", 10, 1, 100);
+        round(limiter, 1);
+        int limit = limiter.getLimit();
+
+        // the time before the sample starts (e.g. the signature) is left out of the round trip time
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = limiter.getLimit(); i > 0; i--) permits.add(limiter.tryAcquire().get());
+        Thread.sleep(50);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::startSample);
+        Thread.sleep(1);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+        Assert.assertTrue(limiter.getLimit() >= limit);
+    }
+
+    /**
+     * Holds every permit for the given time, so the round trips are sampled with the limit in use.
+     */
+    private static void round(AdaptiveConcurrencyLimiter limiter, long millis) throws InterruptedException {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        for (int i = limiter.getLimit(); i > 0; i--) permits.add(limiter.tryAcquire().get());
+        Thread.sleep(millis);
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::success);
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.amazon.aws.pix.core.test.concurrent;
+
+import com.amazon.aws.pix.core.concurrent.CircuitBreaker;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class CircuitBreakerTest {
+
+    @Test
+    public void testOpenAndProbe() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0.5, 10, 4, Duration.ofMillis(50));
+
+        breaker.tryAcquire().get().success();
+        breaker.tryAcquire().get().failure();
+        breaker.tryAcquire().get().success();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.tryAcquire().get().failure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire().isPresent());
+        Assert.assertEquals(1L, (long) Metrics.snapshot().get("pix.breaker.test.rejected"));
+        Assert.assertEquals(1L, (long) Metrics.snapshot().get("pix.breaker.test.state"));
+
+        Thread.sleep(60);
+        CircuitBreaker.Permit probe = breaker.tryAcquire().get();
+        Assert.assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        Assert.assertFalse(breaker.tryAcquire().isPresent());
+
+        probe.ignore();
+        breaker.tryAcquire().get().failure();
+        Assert.assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        Assert.assertEquals(2L, (long) Metrics.snapshot().get("pix.breaker.test.opened"));
+
+        Thread.sleep(60);
+        breaker.tryAcquire().get().success();
+        Assert.assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        Assert.assertTrue(breaker.tryAcquire().isPresent());
+    }
+
+}
@@ -0,0 +1,145 @@
+package com.amazon.aws.pix.core.test.concurrent;
+
+import com.amazon.aws.pix.core.concurrent.SingleFlight;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTest {
+
+    @Test
+    public void testShared() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test-shared", Duration.ZERO, value -> true);
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> leader = singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> follower = singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        Assert.assertFalse(follower.isDone());
+
+        upstream.complete("value");
+        Assert.assertEquals("value", leader.get());
+        Assert.assertEquals("value", follower.get());
+        Assert.assertEquals(1, calls.get());
+        Assert.assertEquals(1L, (long) Metrics.snapshot().get("pix.coalescing.test-shared.coalesced"));
+    }
+
+    @Test
+    public void testSharedBlocking() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test-blocking", Duration.ZERO, value -> true);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "value";
+        }));
+        Assert.assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<String> follower = singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        release.countDown();
+
+        Assert.assertEquals("value", leader.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals("value", follower.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void testErrorPropagated() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test-error", Duration.ZERO, value -> true);
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> leader = singleFlight.executeAsync("key", () -> upstream);
+        CompletableFuture<String> follower = singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture("other"));
+
+        IllegalStateException error = new IllegalStateException("upstream failed");
+        upstream.completeExceptionally(error);
+        Assert.assertSame(error, getError(leader));
+        Assert.assertSame(error, getError(follower));
+
+        CompletableFuture<String> thrown = singleFlight.executeAsync("other", () -> {
+            throw error;
+        });
+        Assert.assertSame(error, getError(thrown));
+    }
+
+    @Test
+    public void testKeyRemovedAfterCompletion() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test-removed", Duration.ZERO, value -> true);
+        AtomicInteger calls = new AtomicInteger();
+
+        Assert.assertEquals("1", singleFlight.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+        Assert.assertEquals("2", singleFlight.execute("key", () -> String.valueOf(calls.incrementAndGet())));
+        Assert.assertEquals("3", singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture(String.valueOf(calls.incrementAndGet()))).get());
+
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("upstream failed"));
+        getError(singleFlight.executeAsync("key", () -> failed));
+        Assert.assertEquals("4", singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture(String.valueOf(calls.incrementAndGet()))).get());
+        Assert.assertEquals(0L, (long) Metrics.snapshot().get("pix.coalescing.test-removed.inflight"));
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test-cache", Duration.ofSeconds(10), "cacheable"::equals);
+        AtomicInteger calls = new AtomicInteger();
+
+        singleFlight.execute("key", () -> {
+            calls.incrementAndGet();
+            return "cacheable";
+        });
+        Assert.assertEquals("cacheable", singleFlight.executeAsync("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        }).get());
+        Assert.assertEquals(1, calls.get());
+
+        singleFlight.execute("other", () -> {
+            calls.incrementAndGet();
+            return "not cacheable";
+        });
+        singleFlight.execute("other", () -> {
+            calls.incrementAndGet();
+            return "not cacheable";
+        });
+        Assert.assertEquals(3, calls.get());
+    }
+
+    private static Throwable getError(CompletableFuture<String> future) throws InterruptedException {
+        try {
+            future.get();
+            Assert.fail("completed without error");
+            return null;
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
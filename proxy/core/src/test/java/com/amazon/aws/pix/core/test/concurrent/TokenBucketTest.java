@@ -0,0 +1,35 @@
+package com.amazon.aws.pix.core.test.concurrent;
+
+import com.amazon.aws.pix.core.concurrent.TokenBucket;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class TokenBucketTest {
+
+    @Test
+    public void testBurst() {
+        TokenBucket bucket = new TokenBucket(1, 2);
+
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertTrue(bucket.tryAcquire());
+        Assert.assertFalse(bucket.tryAcquire());
+    }
+
+    @Test
+    public void testInterruptedWait() {
+        TokenBucket bucket = new TokenBucket(5, 1);
+        Assert.assertTrue(bucket.tryAcquire());
+
+        long start = System.nanoTime();
+        Thread.currentThread().interrupt();
+        Assert.assertFalse(bucket.tryAcquire(Duration.ofSeconds(1)));
+        Assert.assertTrue(Thread.interrupted());
+        Assert.assertTrue(System.nanoTime() - start < Duration.ofMillis(100).toNanos());
+
+        // the permit reserved by the interrupted wait was given back
+        Assert.assertTrue(bucket.tryAcquire(Duration.ofMillis(250)));
+    }
+
+}
@@ -0,0 +1,27 @@
+package com.amazon.aws.pix.core.test.concurrent;
+
+import com.amazon.aws.pix.core.concurrent.VirtualThreads;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void testExecutor() throws Exception {
+        if (!VirtualThreads.isSupported()) {
+            Assert.assertThrows(IllegalStateException.class, () -> VirtualThreads.newExecutor("test"));
+            return;
+        }
+
+        ExecutorService executor = VirtualThreads.newExecutor("test");
+        try {
+            Assert.assertEquals("test-0", executor.submit(() -> Thread.currentThread().getName()).get());
+            Assert.assertEquals("test-1", executor.submit(() -> Thread.currentThread().getName()).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
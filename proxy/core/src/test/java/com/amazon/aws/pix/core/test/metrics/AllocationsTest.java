@@ -0,0 +1,26 @@
+package com.amazon.aws.pix.core.test.metrics;
+
+import com.amazon.aws.pix.core.metrics.Allocations;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class AllocationsTest {
+
+    private static byte[] allocated;
+
+    @Test
+    public void testRecord() {
+        long start = Allocations.current();
+        Assume.assumeTrue(start >= 0);
+
+        allocated = new byte[1 << 20];
+        Allocations.record("test", start);
+        Allocations.record("test", -1);
+
+        Assert.assertTrue(Metrics.counter("pix.alloc.test.bytes").sum() >= allocated.length);
+        Assert.assertEquals(1, Metrics.counter("pix.alloc.test.calls").sum());
+    }
+
+}
@@ -0,0 +1,31 @@
+package com.amazon.aws.pix.core.test.metrics;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class MetricsTest {
+
+    @Test
+    public void testCounter() {
+        Metrics.counter("test.counter").increment();
+        Metrics.counter("test.counter").add(2);
+
+        Assert.assertSame(Metrics.counter("test.counter"), Metrics.counter("test.counter"));
+        Assert.assertEquals(3L, (long) Metrics.snapshot().get("test.counter"));
+    }
+
+    @Test
+    public void testGauge() {
+        AtomicLong value = new AtomicLong(5);
+        Metrics.gauge("test.gauge", value::get);
+        Assert.assertEquals(5L, (long) Metrics.snapshot().get("test.gauge"));
+
+        value.set(7);
+        Assert.assertEquals(7L, (long) Metrics.snapshot().get("test.gauge"));
+        Assert.assertTrue(Metrics.toJson().contains("\"test.gauge\":7"));
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.amazon.aws.pix.core.test.util;
+
+import com.amazon.aws.pix.core.util.AddressAllowlist;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+
+public class AddressAllowlistTest {
+
+    @Test
+    public void testBlocks() {
+        AddressAllowlist allowlist = AddressAllowlist.parse("10.0.1.0/24, 10.0.2.15,fd00::/8");
+
+        Assert.assertTrue(allowlist.allows("10.0.1.1"));
+        Assert.assertTrue(allowlist.allows("10.0.1.255"));
+        Assert.assertFalse(allowlist.allows("10.0.0.255"));
+        Assert.assertTrue(allowlist.allows("10.0.2.15"));
+        Assert.assertFalse(allowlist.allows("10.0.2.16"));
+        Assert.assertTrue(allowlist.allows("fd12::1"));
+        Assert.assertFalse(allowlist.allows("fe80::1"));
+        Assert.assertTrue(allowlist.allows(new InetSocketAddress("10.0.1.7", 51234)));
+    }
+
+    @Test
+    public void testNothingAllowed() {
+        Assert.assertFalse(AddressAllowlist.parse(null).allows("10.0.0.1"));
+        Assert.assertFalse(AddressAllowlist.parse(" ").allows("10.0.0.1"));
+        Assert.assertFalse(AddressAllowlist.parse("10.0.0.0/8").allows((String) null));
+        Assert.assertFalse(AddressAllowlist.parse("10.0.0.0/8").allows("localhost"));
+        Assert.assertTrue(AddressAllowlist.parse("0.0.0.0/0").allows("192.168.0.1"));
+    }
+
+    @Test
+    public void testInvalid() {
+        Assert.assertThrows(IllegalArgumentException.class, () -> AddressAllowlist.parse("10.0.0.0/33"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> AddressAllowlist.parse("10.0.0.0/x"));
+        Assert.assertThrows(IllegalArgumentException.class, () -> AddressAllowlist.parse("bcb.example.com"));
+    }
+
+}
@@ -0,0 +1,49 @@
+package com.amazon.aws.pix.core.test.util;
+
+import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import lombok.SneakyThrows;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Collection;
+
+public class KeyStoreUtilTest {
+
+    private final X509Certificate certificate;
+    private final String pem;
+
+    @SneakyThrows
+    public KeyStoreUtilTest() {
+        KeyStore keyStore = KeyStoreUtil.getKeyStoreFromResource("security/client.jks", "secret");
+        certificate = (X509Certificate) keyStore.getCertificate("client");
+        pem = "-----BEGIN CERTIFICATE-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes()).encodeToString(certificate.getEncoded())
+                + "\n-----END CERTIFICATE-----\n";
+    }
+
+    @Test
+    public void testCertificatesAreParsedOnce() {
+        Collection<X509Certificate> certificates = KeyStoreUtil.getCertificates(pem);
+
+        Assert.assertEquals(1, certificates.size());
+        Assert.assertEquals(certificate, certificates.iterator().next());
+        Assert.assertSame(certificates, KeyStoreUtil.getCertificates(new String(pem)));
+        Assert.assertSame(certificates.iterator().next(), KeyStoreUtil.getCertificate(pem));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testTrustStoresAreNotShared() {
+        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", pem);
+        Assert.assertEquals(certificate, trustStore.getCertificate("bcb-0"));
+
+        trustStore.deleteEntry("bcb-0");
+        KeyStore other = KeyStoreUtil.generateTrustStore("bcb", new String(pem));
+        Assert.assertNotSame(trustStore, other);
+        Assert.assertEquals(certificate, other.getCertificate("bcb-0"));
+    }
+
+}
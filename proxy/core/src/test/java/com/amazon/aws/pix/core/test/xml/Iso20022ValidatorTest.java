@@ -0,0 +1,64 @@
+package com.amazon.aws.pix.core.test.xml;
+
+import com.amazon.aws.pix.core.xml.Iso20022Validator;
+import com.amazon.aws.pix.core.xml.XmlValidationException;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+public class Iso20022ValidatorTest {
+
+    private final Iso20022Validator validator = new Iso20022Validator(64 * 1024);
+    private final String xml = readResource("xml/pacs.008_CONTA_1_msg.xml");
+
+    @Test
+    public void testValid() {
+        validator.validate(bytes(xml));
+    }
+
+    @Test
+    public void testOtherNamespace() {
+        validator.validate(bytes(xml.replace("<FIToFICstmrCdtTrf>", "<FIToFICstmrCdtTrf><Document xmlns=\"urn:other\"/><AppHdr xmlns=\"urn:other\"/>")));
+        assertInvalid(xml.replace("<FIToFICstmrCdtTrf>", "<FIToFICstmrCdtTrf><Document/>"));
+        assertInvalid(xml.replaceAll("<(/?)AppHdr>", "<$1other:AppHdr>").replace("<other:AppHdr>", "<other:AppHdr xmlns:other=\"urn:other\">"));
+    }
+
+    @Test
+    public void testInvalid() {
+        assertInvalid(xml.replace("<AppHdr>", "<AppHdr></AppHdr><AppHdr>"));
+        assertInvalid(xml.replaceAll("<(/?)AppHdr>", "<$1Hdr>"));
+        assertInvalid(xml.replaceAll("<(/?)Document", "<$1Doc"));
+        assertInvalid(xml.replace("Envelope", "Message"));
+        assertInvalid(xml.replace("https://www.bcb.gov.br/pi/", "urn:example:"));
+        assertInvalid(xml.substring(0, xml.length() / 2));
+        assertInvalid("<!DOCTYPE Envelope [<!ENTITY x \"x\">]><Envelope xmlns=\"https://www.bcb.gov.br/pi/pacs.008/1.4\"/>");
+    }
+
+    @Test(expected = XmlValidationException.class)
+    public void testMaxBytes() {
+        new Iso20022Validator(xml.length() / 2).validate(bytes(xml));
+    }
+
+    private void assertInvalid(String message) {
+        try {
+            validator.validate(bytes(message));
+            Assert.fail("Message should be rejected: " + message);
+        } catch (XmlValidationException e) {
+            Assert.assertNotNull(e.getMessage());
+        }
+    }
+
+    private byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SneakyThrows
+    private String readResource(String name) {
+        return FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource(name).getFile()), "UTF-8");
+    }
+
+}
@@ -1,17 +1,30 @@
 package com.amazon.aws.pix.core.test.xml;
 
+import com.amazon.aws.pix.core.timing.RequestTiming;
 import com.amazon.aws.pix.core.util.KeyStoreUtil;
 import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
+import com.amazon.aws.pix.core.xml.VerificationResult;
 import com.amazon.aws.pix.core.xml.XmlSigner;
 import lombok.SneakyThrows;
 import org.apache.commons.io.FileUtils;
 import org.junit.Assert;
 import org.junit.Test;
-
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.InputSource;
+
+import javax.xml.crypto.KeySelector;
+import javax.xml.crypto.dsig.Reference;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.crypto.dsig.XMLSignatureFactory;
+import javax.xml.crypto.dsig.dom.DOMValidateContext;
+import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.File;
+import java.io.StringReader;
 import java.security.KeyStore;
 import java.security.PublicKey;
 import java.security.cert.X509Certificate;
+import java.util.List;
 
 public class Iso20022XmlSignerTest {
 
@@ -67,4 +80,100 @@ public class Iso20022XmlSignerTest {
 
     }
 
+    @Test
+    @SneakyThrows
+    public void testTampered() {
+        String xml = FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource("xml/pacs.008_CONTA_1_msg.xml").getFile()), "UTF-8");
+        String xmlSigned = xmlSigner.sign(xml);
+
+        VerificationResult valid = xmlSigner.validate(xmlSigned, RequestTiming.NONE);
+        Assert.assertTrue(valid.isValid());
+        Assert.assertNotNull(valid.getKey());
+
+        VerificationResult tampered = xmlSigner.validate(xmlSigned.replaceFirst("<Id>00038166</Id>", "<Id>00038167</Id>"), RequestTiming.NONE);
+        Assert.assertFalse(tampered.isValid());
+        Assert.assertEquals(Iso20022XmlSigner.APP_HDR, tampered.getFailedReference());
+        Assert.assertEquals(0, tampered.getSignatureMillis(), 0);
+
+        VerificationResult badSignature = xmlSigner.validate(xmlSigned.replaceFirst("<ds:SignatureValue>.", "<ds:SignatureValue>" + (xmlSigned.contains("<ds:SignatureValue>A") ? "B" : "A")), RequestTiming.NONE);
+        Assert.assertFalse(badSignature.isValid());
+        Assert.assertNull(badSignature.getFailedReference());
+    }
+
+    @Test
+    @SneakyThrows
+    public void testComments() {
+        String xml = FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource("xml/pacs.008_CONTA_1_msg.xml").getFile()), "UTF-8");
+
+        String xmlSigned = xmlSigner.sign(xml.replace("<Document>", "<Document><!-- signed -->"));
+        Assert.assertTrue(xmlSigner.verify(xmlSigned));
+        Assert.assertTrue(xmlSigner.verify(xmlSigned.replace("<!-- signed -->", "").replace("<BizMsgIdr>", "<!-- added --><BizMsgIdr>")));
+    }
+
+    @Test
+    @SneakyThrows
+    public void testEnvelopeElements() {
+        String xml = FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource("xml/pacs.008_CONTA_1_msg.xml").getFile()), "UTF-8");
+
+        String xmlSigned = xmlSigner.sign(xmlSigner.sign(xml));
+        Assert.assertEquals(1, xmlSigned.split("<Sgntr").length - 1);
+        Assert.assertTrue(xmlSigner.verify(xmlSigned));
+
+        Assert.assertTrue(xmlSigner.verify(xmlSigner.sign(xml.replace("<FIToFICstmrCdtTrf>", "<FIToFICstmrCdtTrf><Document xmlns=\"urn:other\"/>"))));
+
+        try {
+            xmlSigner.sign(xml.replace("<FIToFICstmrCdtTrf>", "<FIToFICstmrCdtTrf><Document/>"));
+            Assert.fail("nested <Document> accepted");
+        } catch (RuntimeException e) {
+            Assert.assertTrue(e.getMessage(), e.getMessage().contains("Multiple <Document> Elements detected"));
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    public void testKeyInfoDigest() {
+        String xml = FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource("xml/pacs.008_CONTA_1_msg.xml").getFile()), "UTF-8");
+
+        String first = xmlSigner.sign(xml);
+        String second = xmlSigner.sign(xml);
+        Assert.assertNotEquals(getKeyInfoId(first), getKeyInfoId(second));
+        Assert.assertTrue(xmlSigner.verify(first));
+        Assert.assertTrue(xmlSigner.verify(second));
+
+        VerificationResult tampered = xmlSigner.validate(first.replace(getKeyInfoId(first), getKeyInfoId(second)), RequestTiming.NONE);
+        Assert.assertFalse(tampered.isValid());
+
+        assertKeyInfoDigest(first);
+        assertKeyInfoDigest(second);
+    }
+
+    /**
+     * Compares the {@code KeyInfo} {@code DigestValue} with the digest JSR-105 computes for the same {@code Id}.
+     */
+    @SneakyThrows
+    private void assertKeyInfoDigest(String xmlSigned) {
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document document = dbf.newDocumentBuilder().parse(new InputSource(new StringReader(xmlSigned)));
+        Node signatureNode = document.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature").item(0);
+
+        DOMValidateContext context = new DOMValidateContext(KeySelector.singletonKeySelector(publicKey), signatureNode);
+        XMLSignature signature = XMLSignatureFactory.getInstance("DOM").unmarshalXMLSignature(context);
+        String uri = "#" + signature.getKeyInfo().getId();
+        Assert.assertEquals(getKeyInfoId(xmlSigned), signature.getKeyInfo().getId());
+
+        Reference reference = ((List<?>) signature.getSignedInfo().getReferences()).stream()
+                .map(Reference.class::cast)
+                .filter(r -> uri.equals(r.getURI()))
+                .findFirst()
+                .orElseThrow();
+        Assert.assertTrue(reference.validate(context));
+        Assert.assertArrayEquals(reference.getCalculatedDigestValue(), reference.getDigestValue());
+    }
+
+    private static String getKeyInfoId(String xmlSigned) {
+        int start = xmlSigned.indexOf("Id=\"", xmlSigned.indexOf("<ds:KeyInfo")) + 4;
+        return xmlSigned.substring(start, xmlSigned.indexOf('"', start));
+    }
+
 }
@@ -0,0 +1,71 @@
+package com.amazon.aws.pix.core.test.xml;
+
+import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
+import com.amazon.aws.pix.core.xml.XmlSignatureAlgorithm;
+import com.amazon.aws.pix.core.xml.XmlSigner;
+import lombok.SneakyThrows;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+
+public class XmlSignatureAlgorithmTest {
+
+    private final KeyStore rsaKeyStore = KeyStoreUtil.getKeyStoreFromResource("security/client.jks", "secret");
+    private final KeyStore ecKeyStore = KeyStoreUtil.getKeyStoreFromResource("security/client-ec.jks", "secret");
+
+    @Test
+    public void testSignAndVerify() {
+        String xml = readResource("xml/test.xml");
+        String iso20022Xml = readResource("xml/pacs.008_CONTA_1_msg.xml");
+
+        for (XmlSignatureAlgorithm algorithm : XmlSignatureAlgorithm.values()) {
+            KeyStore.PrivateKeyEntry entry = getEntry(algorithm);
+
+            XmlSigner xmlSigner = new XmlSigner(entry.getPrivateKey(), (X509Certificate) entry.getCertificate(), getKeyStore(algorithm), algorithm);
+            String xmlSigned = xmlSigner.sign(xml);
+            Assert.assertTrue(algorithm.name(), xmlSigned.contains(algorithm.getSignatureMethod()));
+            Assert.assertTrue(algorithm.name(), xmlSigner.verify(xmlSigned));
+
+            XmlSigner iso20022XmlSigner = new Iso20022XmlSigner(entry.getPrivateKey(), (X509Certificate) entry.getCertificate(), getKeyStore(algorithm), algorithm);
+            Assert.assertTrue(algorithm.name(), iso20022XmlSigner.verify(iso20022XmlSigner.sign(iso20022Xml)));
+        }
+    }
+
+    @Test
+    public void testVerifyDetectsAlgorithm() {
+        String xml = readResource("xml/test.xml");
+        KeyStore.PrivateKeyEntry entry = getEntry(XmlSignatureAlgorithm.RSA_PSS_SHA256);
+
+        XmlSigner pssSigner = new XmlSigner(entry.getPrivateKey(), (X509Certificate) entry.getCertificate(), rsaKeyStore, XmlSignatureAlgorithm.RSA_PSS_SHA256);
+        XmlSigner defaultSigner = new XmlSigner(entry.getPrivateKey(), (X509Certificate) entry.getCertificate(), rsaKeyStore);
+
+        Assert.assertTrue(defaultSigner.verify(pssSigner.sign(xml)));
+        Assert.assertTrue(pssSigner.verify(defaultSigner.sign(xml)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKeyMismatch() {
+        KeyStore.PrivateKeyEntry entry = getEntry(XmlSignatureAlgorithm.RSA_SHA256);
+        new XmlSigner(entry.getPrivateKey(), (X509Certificate) entry.getCertificate(), rsaKeyStore, XmlSignatureAlgorithm.ECDSA_SHA256);
+    }
+
+    private KeyStore getKeyStore(XmlSignatureAlgorithm algorithm) {
+        return "EC".equals(algorithm.getKeyAlgorithm()) ? ecKeyStore : rsaKeyStore;
+    }
+
+    @SneakyThrows
+    private KeyStore.PrivateKeyEntry getEntry(XmlSignatureAlgorithm algorithm) {
+        return (KeyStore.PrivateKeyEntry) getKeyStore(algorithm).getEntry("client", new KeyStore.PasswordProtection("secret".toCharArray()));
+    }
+
+    @SneakyThrows
+    private String readResource(String name) {
+        return FileUtils.readFileToString(new File(this.getClass().getClassLoader().getResource(name).getFile()), "UTF-8");
+    }
+
+}
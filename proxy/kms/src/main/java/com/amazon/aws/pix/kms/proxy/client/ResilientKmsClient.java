@@ -0,0 +1,268 @@
+package com.amazon.aws.pix.kms.proxy.client;
+
+import com.amazon.aws.pix.core.concurrent.TokenBucket;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import lombok.NonNull;
+import lombok.Value;
+import software.amazon.awssdk.core.exception.AbortedException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.kms.KmsClient;
+import software.amazon.awssdk.services.kms.model.DependencyTimeoutException;
+import software.amazon.awssdk.services.kms.model.DescribeKeyRequest;
+import software.amazon.awssdk.services.kms.model.DescribeKeyResponse;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyRequest;
+import software.amazon.awssdk.services.kms.model.GetPublicKeyResponse;
+import software.amazon.awssdk.services.kms.model.KeyUnavailableException;
+import software.amazon.awssdk.services.kms.model.KmsInternalException;
+import software.amazon.awssdk.services.kms.model.LimitExceededException;
+import software.amazon.awssdk.services.kms.model.SignRequest;
+import software.amazon.awssdk.services.kms.model.SignResponse;
+import software.amazon.awssdk.services.kms.model.VerifyRequest;
+import software.amazon.awssdk.services.kms.model.VerifyResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * {@link KmsClient} for the KMS JCE provider that paces {@code Sign} calls under the KMS request quota, retries
+ * throttled and regional failures on the multi-Region replicas of the key, and optionally hedges slow calls.
+ * The other operations used by the provider go to the primary Region.
+ */
+public class ResilientKmsClient implements KmsClient {
+
+    private static final long BACKOFF_BASE_MS = 25;
+    private static final int HEDGE_MAX_THREADS = 64;
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final TokenBucket tokenBucket;
+    private final Duration maxWait;
+    private final int maxRetries;
+    private final Duration hedgeDelay;
+    private final ThreadPoolExecutor hedgeExecutor;
+
+    private final LongAdder throttled = Metrics.counter("pix.kms.sign.throttled");
+    private final LongAdder rateLimited = Metrics.counter("pix.kms.sign.rate-limited");
+    private final LongAdder retried = Metrics.counter("pix.kms.sign.retried");
+    private final LongAdder failedOver = Metrics.counter("pix.kms.sign.failed-over");
+    private final LongAdder hedged = Metrics.counter("pix.kms.sign.hedged");
+
+    /**
+     * @param clients    KMS clients by Region, the primary first. They should not retry on their own.
+     * @param rateLimit  {@code Sign} calls per second, 0 to disable pacing.
+     * @param hedgeDelay delay after which a second call is started, {@link Duration#ZERO} to disable hedging.
+     */
+    public ResilientKmsClient(@NonNull Map<Region, KmsClient> clients, double rateLimit, int burst, @NonNull Duration maxWait, int maxRetries, @NonNull Duration hedgeDelay) {
+        if (clients.isEmpty()) throw new IllegalArgumentException("At least one KMS client is required");
+        clients.forEach((region, client) -> replicas.add(new Replica(region, client)));
+        this.tokenBucket = rateLimit > 0 ? new TokenBucket(rateLimit, burst) : null;
+        this.maxWait = maxWait;
+        this.maxRetries = maxRetries;
+        this.hedgeDelay = hedgeDelay;
+        // no queue: when every thread is busy the call runs on the caller thread, without a hedge
+        this.hedgeExecutor = hedgeDelay.isZero() ? null : new ThreadPoolExecutor(0, HEDGE_MAX_THREADS, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "pix-kms-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public SignResponse sign(SignRequest signRequest) {
+        acquire();
+
+        int replica = 0;
+        SdkException last = null;
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                backoff(attempt);
+                acquire();
+            }
+            try {
+                return hedge(replica, signRequest);
+            } catch (SdkException e) {
+                if (!isRetryable(e)) throw e;
+                last = e;
+                retried.increment();
+                if (replica + 1 < replicas.size()) {
+                    replica++;
+                    failedOver.increment();
+                }
+            }
+        }
+        throw last;
+    }
+
+    @Override
+    public VerifyResponse verify(VerifyRequest verifyRequest) {
+        return primary().verify(verifyRequest);
+    }
+
+    @Override
+    public GetPublicKeyResponse getPublicKey(GetPublicKeyRequest getPublicKeyRequest) {
+        return primary().getPublicKey(getPublicKeyRequest);
+    }
+
+    @Override
+    public DescribeKeyResponse describeKey(DescribeKeyRequest describeKeyRequest) {
+        return primary().describeKey(describeKeyRequest);
+    }
+
+    @Override
+    public String serviceName() {
+        return SERVICE_NAME;
+    }
+
+    @Override
+    public void close() {
+        if (hedgeExecutor != null) hedgeExecutor.shutdownNow();
+        replicas.forEach(replica -> replica.getClient().close());
+    }
+
+    private KmsClient primary() {
+        return replicas.get(0).getClient();
+    }
+
+    /**
+     * An interrupted thread, including one interrupted during the backoff, makes no further call.
+     */
+    private void acquire() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw AbortedException.builder().message("Interrupted before KMS Sign").build();
+        }
+        if (tokenBucket != null && !tokenBucket.tryAcquire(maxWait)) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw AbortedException.builder().message("Interrupted while waiting for the KMS Sign rate limit").build();
+            }
+            rateLimited.increment();
+            throw LimitExceededException.builder().message("KMS Sign rate limit exceeded on the client side").build();
+        }
+    }
+
+    /**
+     * Starts a second call, on the next replica when there is one, if the first is slower than the hedge delay and
+     * the pacing allows it. The first successful response wins.
+     */
+    private SignResponse hedge(int replica, SignRequest signRequest) {
+        if (hedgeExecutor == null) return replicas.get(replica).sign(signRequest);
+
+        CompletableFuture<SignResponse> first;
+        try {
+            first = CompletableFuture.supplyAsync(() -> replicas.get(replica).sign(signRequest), hedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            return replicas.get(replica).sign(signRequest);
+        }
+        try {
+            return first.get(hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (tokenBucket != null && !tokenBucket.tryAcquire()) return join(first);
+        } catch (ExecutionException e) {
+            return join(first);
+        } catch (InterruptedException e) {
+            throw abort(first, e);
+        }
+
+        hedged.increment();
+        int hedgeReplica = Math.min(replica + 1, replicas.size() - 1);
+        CompletableFuture<SignResponse> second;
+        try {
+            second = CompletableFuture.supplyAsync(() -> replicas.get(hedgeReplica).sign(signRequest), hedgeExecutor);
+        } catch (RejectedExecutionException e) {
+            return join(first);
+        }
+
+        CompletableFuture<SignResponse> result = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        BiConsumer<SignResponse, Throwable> complete = (response, throwable) -> {
+            if (throwable == null) {
+                result.complete(response);
+            } else if (failures.incrementAndGet() == 2) {
+                result.completeExceptionally(throwable);
+            }
+        };
+        first.whenComplete(complete);
+        second.whenComplete(complete);
+        return join(result);
+    }
+
+    private SignResponse join(CompletableFuture<SignResponse> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new CompletionException(e.getCause());
+        } catch (InterruptedException e) {
+            throw abort(future, e);
+        }
+    }
+
+    /**
+     * The interrupt is kept for the caller and ends the retries, the call itself is not waited for.
+     */
+    private AbortedException abort(CompletableFuture<SignResponse> future, InterruptedException e) {
+        future.cancel(true);
+        Thread.currentThread().interrupt();
+        return AbortedException.builder().message("Interrupted while waiting for KMS Sign").cause(e).build();
+    }
+
+    private boolean isRetryable(SdkException e) {
+        if (e instanceof AbortedException) return false;
+        if (RetryUtils.isThrottlingException(e)) {
+            throttled.increment();
+            return true;
+        }
+        return e instanceof SdkClientException
+                || e instanceof KmsInternalException
+                || e instanceof KeyUnavailableException
+                || e instanceof DependencyTimeoutException
+                || (e instanceof SdkServiceException && ((SdkServiceException) e).statusCode() >= 500);
+    }
+
+    private void backoff(int attempt) {
+        long maxMs = BACKOFF_BASE_MS << Math.min(attempt, 6);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Value
+    private static class Replica {
+        Region region;
+        KmsClient client;
+
+        SignResponse sign(SignRequest signRequest) {
+            return client.sign(signRequest.toBuilder().keyId(keyId(signRequest.keyId())).build());
+        }
+
+        /**
+         * Multi-Region keys share the key id, only the Region of an ARN has to change.
+         */
+        private String keyId(String keyId) {
+            if (keyId == null || !keyId.startsWith("arn:")) return keyId;
+            String[] parts = keyId.split(":", 6);
+            if (parts.length < 6) return keyId;
+            parts[3] = region.id();
+            return String.join(":", parts);
+        }
+    }
+
+}
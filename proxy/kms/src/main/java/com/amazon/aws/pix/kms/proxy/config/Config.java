@@ -1,12 +1,24 @@
 package com.amazon.aws.pix.kms.proxy.config;
 
+import com.amazon.aws.pix.core.util.AddressAllowlist;
+import com.amazon.aws.pix.core.util.TenantUtil;
+import com.amazon.aws.pix.core.xml.XmlSignatureAlgorithm;
 import lombok.Getter;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProviderChain;
+import software.amazon.awssdk.auth.credentials.ContainerCredentialsProvider;
 import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.InstanceProfileCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.WebIdentityTokenFileCredentialsProvider;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import software.amazon.awssdk.services.secretsmanager.model.ResourceNotFoundException;
 import software.amazon.awssdk.services.ssm.SsmClient;
 import software.amazon.awssdk.services.ssm.model.GetParametersByPathRequest;
 import software.amazon.awssdk.services.ssm.model.GetParametersByPathResponse;
@@ -14,13 +26,20 @@ import software.amazon.awssdk.services.ssm.model.Parameter;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Singleton
-public class Config {
+public class Config implements Resource {
 
     @ConfigProperty(name = "aws.region")
     String regionId;
@@ -28,9 +47,163 @@ public class Config {
     @Getter
     Region region;
 
+    /**
+     * SnapStart functions get their credentials from the container endpoint instead of environment variables. The
+     * server also runs on EC2 (instance profile) and Kubernetes (web identity token file).
+     */
+    @Getter
+    AwsCredentialsProvider credentialsProvider;
+
     @ConfigProperty(name = "pix.spi.proxy")
     Boolean spi;
 
+    @Getter
+    @ConfigProperty(name = "pix.proxy.limit.rejected-status-code")
+    int limitRejectedStatusCode;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.initial")
+    int dictLimitInitial;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.min")
+    int dictLimitMin;
+
+    @ConfigProperty(name = "pix.proxy.limit.dict.max")
+    int dictLimitMax;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.initial")
+    int spiLimitInitial;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.min")
+    int spiLimitMin;
+
+    @ConfigProperty(name = "pix.proxy.limit.spi.max")
+    int spiLimitMax;
+
+    @ConfigProperty(name = "pix.proxy.coalescing.dict.enabled")
+    boolean dictCoalescingEnabled;
+
+    @ConfigProperty(name = "pix.proxy.coalescing.dict.cache-ttl-ms")
+    long dictCoalescingCacheTtl;
+
+    @ConfigProperty(name = "pix.proxy.signature.dict.algorithm")
+    XmlSignatureAlgorithm dictSignatureAlgorithm;
+
+    @ConfigProperty(name = "pix.proxy.signature.spi.algorithm")
+    XmlSignatureAlgorithm spiSignatureAlgorithm;
+
+    @ConfigProperty(name = "pix.proxy.size.dict.max-request-bytes")
+    int dictMaxRequestBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.dict.max-response-bytes")
+    int dictMaxResponseBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.spi.max-request-bytes")
+    int spiMaxRequestBytes;
+
+    @ConfigProperty(name = "pix.proxy.size.spi.max-response-bytes")
+    int spiMaxResponseBytes;
+
+    @ConfigProperty(name = "pix.proxy.validation.spi.enabled")
+    boolean spiValidationEnabled;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.validation.spi.max-bytes")
+    int validationMaxBytes;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.validation.spi.roots")
+    List<String> validationRoots;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.validation.spi.namespace-prefix")
+    String validationNamespacePrefix;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.timeout-ms")
+    long dictTimeout;
+
+    @ConfigProperty(name = "pix.proxy.resilience.spi.timeout-ms")
+    long spiTimeout;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.failure-rate")
+    double breakerFailureRate;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.window")
+    int breakerWindow;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.minimum-calls")
+    int breakerMinimumCalls;
+
+    @ConfigProperty(name = "pix.proxy.resilience.breaker.open-ms")
+    long breakerOpen;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.max-retries")
+    int dictMaxRetries;
+
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.enabled")
+    boolean dictHedgeEnabled;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.percentile")
+    double hedgePercentile;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.resilience.dict.hedge.window")
+    int hedgeWindow;
+
+    @ConfigProperty(name = "pix.proxy.balancer.refresh-ms")
+    long dnsRefresh;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.timing.header.enabled")
+    boolean timingHeaderEnabled;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.snapstart.priming.enabled")
+    boolean primingEnabled;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.kms.rate-limit")
+    double kmsRateLimit;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.kms.burst")
+    int kmsBurst;
+
+    @ConfigProperty(name = "pix.proxy.kms.max-wait-ms")
+    long kmsMaxWait;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.kms.max-retries")
+    int kmsMaxRetries;
+
+    @ConfigProperty(name = "pix.proxy.kms.hedge-delay-ms")
+    long kmsHedgeDelay;
+
+    @ConfigProperty(name = "pix.proxy.kms.failover-regions")
+    Optional<List<String>> kmsFailoverRegions;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.server.enabled")
+    boolean serverEnabled;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.server.port")
+    int serverPort;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.server.worker-pool-size")
+    int serverWorkerPoolSize;
+
+    @Getter
+    @ConfigProperty(name = "pix.proxy.threads.virtual.enabled")
+    boolean virtualThreadsEnabled;
+
+    @ConfigProperty(name = "pix.proxy.threads.virtual.pinned-threshold-ms")
+    long virtualThreadsPinnedThreshold;
+
     private enum Secret {
         MtlsPrivateKey;
 
@@ -39,6 +212,10 @@ public class Config {
         public String getSecretId() {
             return String.format("%s%s", PATH, this.name());
         }
+
+        public String getSecretId(String tenant) {
+            return String.format("%s%s%s/%s", PATH, TenantUtil.TENANTS_PATH, tenant, this.name());
+        }
     }
 
     private enum Param {
@@ -50,78 +227,207 @@ public class Config {
         BcbDictEndpoint,
         BcbSpiEndpoint,
         SpiAuditStream,
-        DictAuditStream;
+        DictAuditStream,
+        AllowedCallers;
 
         public static final String PATH = "/pix/proxy/kms/";
 
         public String getParamName() {
             return String.format("%s%s", PATH, this.name());
         }
+
+        public String getParamName(String tenant) {
+            return String.format("%s%s%s/%s", PATH, TenantUtil.TENANTS_PATH, tenant, this.name());
+        }
     }
 
-    private Map<Secret, String> secrets;
+    private SecretsManagerClient secretsManagerClient;
+    private Map<String, String> secrets;
     private Map<String, String> parameters;
+    private Map<String, AddressAllowlist> allowedCallers;
 
     @PostConstruct
     void init() {
         region = Region.of(regionId);
+        credentialsProvider = serverEnabled
+                ? AwsCredentialsProviderChain.of(EnvironmentVariableCredentialsProvider.create(), WebIdentityTokenFileCredentialsProvider.create(),
+                        ContainerCredentialsProvider.builder().build(), InstanceProfileCredentialsProvider.create())
+                : AwsCredentialsProviderChain.of(EnvironmentVariableCredentialsProvider.create(), ContainerCredentialsProvider.builder().build());
         loadSecrets();
         loadParameters();
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+    }
+
+    /**
+     * Restored snapshots may be days old: reload the secrets and parameters before the other services, which are
+     * restored after this one, rebuild their clients from them.
+     */
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        loadSecrets();
+        loadParameters();
+    }
+
+    /**
+     * A tenant other than the default one can only be used by the callers (source addresses) of its own
+     * {@code AllowedCallers} parameter.
+     */
+    public boolean isAllowed(String tenant, String caller) {
+        if (TenantUtil.DEFAULT_TENANT.equals(tenant)) return true;
+        return allowedCallers.getOrDefault(tenant, AddressAllowlist.NONE).allows(caller);
     }
 
-    public String getMtlsPrivateKey() {
-        return secrets.get(Secret.MtlsPrivateKey);
+    public String getMtlsPrivateKey(String tenant) {
+        return secrets.computeIfAbsent(tenant, this::loadMtlsPrivateKey);
     }
 
-    public String getMtlsCertificate() {
-        return getParameter(Param.MtlsCertificate);
+    public String getMtlsCertificate(String tenant) {
+        return getParameter(tenant, Param.MtlsCertificate);
     }
 
-    public String getSignatureKeyId() {
-        return getParameter(Param.SignatureKeyId);
+    public String getSignatureKeyId(String tenant) {
+        return getParameter(tenant, Param.SignatureKeyId);
     }
 
-    public String getSignatureCertificate() {
-        return getParameter(Param.SignatureCertificate);
+    public String getSignatureCertificate(String tenant) {
+        return getParameter(tenant, Param.SignatureCertificate);
     }
 
-    public String getAuditStream() {
-        return spi ? getParameter(Param.SpiAuditStream) : getParameter(Param.DictAuditStream);
+    public String getAuditStream(String tenant) {
+        return spi ? getParameter(tenant, Param.SpiAuditStream) : getParameter(tenant, Param.DictAuditStream);
     }
 
-    public String getBcbMtlsCertificate() {
-        return getParameter(Param.BcbMtlsCertificate);
+    public String getBcbMtlsCertificate(String tenant) {
+        return getParameter(tenant, Param.BcbMtlsCertificate);
     }
 
-    public String getBcbSignatureCertificate() {
-        return getParameter(Param.BcbSignatureCertificate);
+    public String getBcbSignatureCertificate(String tenant) {
+        return getParameter(tenant, Param.BcbSignatureCertificate);
     }
 
-    public String getBcbEndpoint() {
-        return spi ? getParameter(Param.BcbSpiEndpoint) : getParameter(Param.BcbDictEndpoint);
+    public String getBcbEndpoint(String tenant) {
+        return spi ? getParameter(tenant, Param.BcbSpiEndpoint) : getParameter(tenant, Param.BcbDictEndpoint);
     }
 
     public boolean isIso20022() {
         return spi;
     }
 
+    public String getRouteName() {
+        return spi ? "spi" : "dict";
+    }
+
+    public XmlSignatureAlgorithm getSignatureAlgorithm() {
+        return spi ? spiSignatureAlgorithm : dictSignatureAlgorithm;
+    }
+
+    public int getMaxRequestBytes() {
+        return spi ? spiMaxRequestBytes : dictMaxRequestBytes;
+    }
+
+    public int getMaxResponseBytes() {
+        return spi ? spiMaxResponseBytes : dictMaxResponseBytes;
+    }
+
+    public boolean isValidationEnabled() {
+        return spi && spiValidationEnabled;
+    }
+
+    public int getLimitInitial() {
+        return spi ? spiLimitInitial : dictLimitInitial;
+    }
+
+    public int getLimitMin() {
+        return spi ? spiLimitMin : dictLimitMin;
+    }
+
+    public int getLimitMax() {
+        return spi ? spiLimitMax : dictLimitMax;
+    }
+
+    public boolean isCoalescingEnabled() {
+        return !spi && dictCoalescingEnabled;
+    }
+
+    public Duration getCoalescingCacheTtl() {
+        return Duration.ofMillis(dictCoalescingCacheTtl);
+    }
+
+    public Duration getUpstreamTimeout() {
+        return Duration.ofMillis(spi ? spiTimeout : dictTimeout);
+    }
+
+    public Duration getDnsRefresh() {
+        return Duration.ofMillis(dnsRefresh);
+    }
+
+    public Duration getBreakerOpenDuration() {
+        return Duration.ofMillis(breakerOpen);
+    }
+
+    public Duration getVirtualThreadsPinnedThreshold() {
+        return Duration.ofMillis(virtualThreadsPinnedThreshold);
+    }
+
+    /**
+     * Only DICT GETs are retried and hedged: they are idempotent, while SPI GETs move the message stream forward.
+     */
+    public int getMaxRetries() {
+        return spi ? 0 : dictMaxRetries;
+    }
+
+    public boolean isHedgeEnabled() {
+        return !spi && dictHedgeEnabled;
+    }
+
+    public Duration getKmsMaxWait() {
+        return Duration.ofMillis(kmsMaxWait);
+    }
+
+    public Duration getKmsHedgeDelay() {
+        return Duration.ofMillis(kmsHedgeDelay);
+    }
+
+    public List<Region> getKmsRegions() {
+        List<Region> regions = new ArrayList<>();
+        regions.add(region);
+        kmsFailoverRegions.orElse(List.of()).stream().map(Region::of).filter(r -> !regions.contains(r)).forEach(regions::add);
+        return regions;
+    }
+
     private void loadSecrets() {
-        SecretsManagerClient secretsManagerClient = SecretsManagerClient.builder()
+        secretsManagerClient = SecretsManagerClient.builder()
                 .region(region)
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
                 .httpClientBuilder(UrlConnectionHttpClient.builder())
                 .build();
 
-        secrets = new HashMap<>();
+        secrets = new ConcurrentHashMap<>();
+        getMtlsPrivateKey(TenantUtil.DEFAULT_TENANT);
+    }
+
+    private String loadMtlsPrivateKey(String tenant) {
+        if (!TenantUtil.DEFAULT_TENANT.equals(tenant)) {
+            try {
+                GetSecretValueResponse secretValue = secretsManagerClient.getSecretValue(builder -> builder.secretId(Secret.MtlsPrivateKey.getSecretId(tenant)));
+                return secretValue.secretString();
+            } catch (ResourceNotFoundException e) {
+                throw new IllegalStateException(String.format("Secret %s not found!", Secret.MtlsPrivateKey.getSecretId(tenant)), e);
+            }
+        }
 
         GetSecretValueResponse secretValue = secretsManagerClient.getSecretValue(builder -> builder.secretId(Secret.MtlsPrivateKey.getSecretId()));
-        secrets.put(Secret.MtlsPrivateKey, secretValue.secretString());
+        return secretValue.secretString();
     }
 
     private void loadParameters() {
         SsmClient ssmClient = SsmClient.builder()
                 .region(region)
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
+                .credentialsProvider(credentialsProvider)
                 .httpClientBuilder(UrlConnectionHttpClient.builder())
                 .build();
 
@@ -132,6 +438,21 @@ public class Config {
             parameters.putAll(response.parameters().stream().collect(Collectors.toMap(Parameter::name, Parameter::value)));
             nextToken = response.nextToken();
         } while (nextToken != null);
+
+        Set<String> tenantIds = parameters.keySet().stream()
+                .map(name -> TenantUtil.getTenantFromParameterName(Param.PATH, name))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        allowedCallers = tenantIds.stream()
+                .collect(Collectors.toMap(Function.identity(), tenant -> AddressAllowlist.parse(parameters.get(Param.AllowedCallers.getParamName(tenant)))));
+    }
+
+    private String getParameter(String tenant, Param param) {
+        if (!TenantUtil.DEFAULT_TENANT.equals(tenant)) {
+            String value = parameters.get(param.getParamName(tenant));
+            if (value != null) return value;
+        }
+        return getParameter(param);
     }
 
     private String getParameter(Param param) {
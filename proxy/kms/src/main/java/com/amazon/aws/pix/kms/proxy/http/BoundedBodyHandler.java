@@ -0,0 +1,112 @@
+package com.amazon.aws.pix.kms.proxy.http;
+
+import java.io.ByteArrayOutputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+
+/**
+ * Like {@link HttpResponse.BodyHandlers#ofString()}, but fails with {@link PayloadTooLargeException} as soon as the
+ * Content-Length or the bytes received go over the limit, instead of buffering the whole body.
+ */
+public class BoundedBodyHandler implements HttpResponse.BodyHandler<String> {
+
+    private final long maxBytes;
+
+    public BoundedBodyHandler(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public HttpResponse.BodySubscriber<String> apply(HttpResponse.ResponseInfo responseInfo) {
+        long contentLength = responseInfo.headers().firstValueAsLong("content-length").orElse(-1L);
+        if (contentLength == 0 || responseInfo.statusCode() == 204 || responseInfo.statusCode() == 304) {
+            // e.g. the empty 201 of the SPI messages: no buffer to allocate, nothing to decode
+            return HttpResponse.BodySubscribers.replacing("");
+        }
+        return new BoundedBodySubscriber(maxBytes, contentLength, getCharset(responseInfo.headers()));
+    }
+
+    private static Charset getCharset(HttpHeaders headers) {
+        String contentType = headers.firstValue("content-type").orElse("");
+        for (String parameter : contentType.split(";")) {
+            String[] pair = parameter.trim().split("=", 2);
+            if (pair.length == 2 && pair[0].equalsIgnoreCase("charset")) {
+                try {
+                    return Charset.forName(pair[1].replace("\"", "").trim());
+                } catch (IllegalArgumentException e) {
+                    break;
+                }
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+
+    private static class BoundedBodySubscriber implements HttpResponse.BodySubscriber<String> {
+
+        private final long maxBytes;
+        private final long contentLength;
+        private final Charset charset;
+        private final CompletableFuture<String> body = new CompletableFuture<>();
+        private final ByteArrayOutputStream buffer;
+        private Flow.Subscription subscription;
+
+        private BoundedBodySubscriber(long maxBytes, long contentLength, Charset charset) {
+            this.maxBytes = maxBytes;
+            this.contentLength = contentLength;
+            this.charset = charset;
+            this.buffer = new ByteArrayOutputStream(contentLength > 0 && contentLength <= maxBytes ? (int) contentLength : 8192);
+        }
+
+        @Override
+        public CompletionStage<String> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (contentLength > maxBytes) {
+                reject();
+            } else {
+                subscription.request(Long.MAX_VALUE);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            if (body.isDone()) return;
+            for (ByteBuffer item : items) {
+                if (buffer.size() + item.remaining() > maxBytes) {
+                    reject();
+                    return;
+                }
+                byte[] bytes = new byte[item.remaining()];
+                item.get(bytes);
+                buffer.write(bytes, 0, bytes.length);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            body.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(new String(buffer.toByteArray(), charset));
+        }
+
+        private void reject() {
+            subscription.cancel();
+            body.completeExceptionally(new PayloadTooLargeException(maxBytes));
+        }
+    }
+
+}
@@ -0,0 +1,11 @@
+package com.amazon.aws.pix.kms.proxy.http;
+
+import java.io.IOException;
+
+public class PayloadTooLargeException extends IOException {
+
+    public PayloadTooLargeException(long maxBytes) {
+        super(String.format("Payload exceeds the limit of %d bytes", maxBytes));
+    }
+
+}
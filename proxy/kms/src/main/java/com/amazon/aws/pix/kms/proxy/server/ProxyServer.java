@@ -0,0 +1,189 @@
+package com.amazon.aws.pix.kms.proxy.server;
+
+import com.amazon.aws.pix.core.concurrent.VirtualThreads;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.kms.proxy.config.Config;
+import com.amazon.aws.pix.kms.proxy.service.Logger;
+import com.amazon.aws.pix.kms.proxy.service.Sender;
+import com.amazon.aws.pix.kms.proxy.service.Signer;
+import com.amazon.aws.pix.kms.proxy.service.Validator;
+import com.amazon.aws.pix.kms.proxy.sync.ProxyHandler;
+import com.amazonaws.services.lambda.runtime.RequestHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Serves the {@link ProxyHandler} over HTTP for long-running deployments (ECS, EC2), when
+ * {@code pix.proxy.server.enabled} is set. Requests are read on the Vert.x event loop and handled concurrently on a
+ * worker pool, so the BCB connections, TLS sessions and KMS clients are shared by all in-flight requests. With
+ * {@code pix.proxy.threads.virtual.enabled} (JDK 21) each request gets its own virtual thread instead.
+ */
+@Slf4j
+@Singleton
+public class ProxyServer {
+
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "keep-alive", "transfer-encoding", "upgrade");
+
+    private final Config config;
+    private final Vertx vertx;
+    private final RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> proxyHandler;
+    private HttpServer httpServer;
+    private WorkerExecutor workerExecutor;
+    private ExecutorService virtualExecutor;
+
+    @Inject
+    public ProxyServer(Config config, Vertx vertx, Validator validator, Signer signer, Sender sender, Logger logger) {
+        this(config, vertx, new ProxyHandler(validator, signer, sender, logger, config));
+    }
+
+    ProxyServer(Config config, Vertx vertx, RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> proxyHandler) {
+        this.config = config;
+        this.vertx = vertx;
+        this.proxyHandler = proxyHandler;
+    }
+
+    void onStart(@Observes StartupEvent event) {
+        if (!config.isServerEnabled()) return;
+
+        if (config.isVirtualThreadsEnabled()) {
+            virtualExecutor = VirtualThreads.newExecutor("pix-proxy");
+            VirtualThreads.monitorPinning(config.getVirtualThreadsPinnedThreshold());
+        } else {
+            workerExecutor = vertx.createSharedWorkerExecutor("pix-proxy", config.getServerWorkerPoolSize());
+        }
+        httpServer = vertx.createHttpServer(new HttpServerOptions().setPort(config.getServerPort()))
+                .requestHandler(this::handle)
+                .listen(result -> {
+                    if (result.succeeded()) {
+                        log.info("pix-proxy {} listening on port {}", config.getRouteName(), result.result().actualPort());
+                    } else {
+                        log.error("pix-proxy {} failed to listen on port {}", config.getRouteName(), config.getServerPort(), result.cause());
+                    }
+                });
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (httpServer != null) httpServer.close();
+        if (workerExecutor != null) workerExecutor.close();
+        if (virtualExecutor != null) virtualExecutor.shutdownNow();
+    }
+
+    private void handle(HttpServerRequest request) {
+        int maxBytes = config.getMaxRequestBytes();
+        Buffer body = Buffer.buffer();
+
+        request.handler(chunk -> {
+            if (maxBytes > 0 && body.length() + chunk.length() > maxBytes) {
+                if (!request.response().ended()) {
+                    Metrics.counter(String.format("pix.size.%s.request.rejected", config.getRouteName())).increment();
+                    request.response().setStatusCode(413).setStatusMessage("Request too large").putHeader("connection", "close").end("Request too large");
+                }
+                return;
+            }
+            body.appendBuffer(chunk);
+        });
+
+        request.endHandler(v -> {
+            if (request.response().ended()) return;
+            APIGatewayProxyRequestEvent event = toEvent(request, body);
+            if (virtualExecutor != null) {
+                Context context = vertx.getOrCreateContext();
+                virtualExecutor.execute(() -> {
+                    AsyncResult<APIGatewayProxyResponseEvent> result = handle(event);
+                    context.runOnContext(ignored -> write(request.response(), result));
+                });
+            } else {
+                workerExecutor.<APIGatewayProxyResponseEvent>executeBlocking(
+                        promise -> promise.complete(proxyHandler.handleRequest(event, null)),
+                        false,
+                        result -> write(request.response(), result));
+            }
+        });
+    }
+
+    private AsyncResult<APIGatewayProxyResponseEvent> handle(APIGatewayProxyRequestEvent event) {
+        try {
+            return Future.succeededFuture(proxyHandler.handleRequest(event, null));
+        } catch (RuntimeException e) {
+            return Future.failedFuture(e);
+        }
+    }
+
+    private APIGatewayProxyRequestEvent toEvent(HttpServerRequest request, Buffer body) {
+        APIGatewayProxyRequestEvent event = new APIGatewayProxyRequestEvent();
+        event.setHttpMethod(request.method().name());
+        event.setPath(request.path());
+        event.setHeaders(toSingleValue(request.headers()));
+        event.setMultiValueHeaders(toMultiValue(request.headers()));
+        if (!request.params().isEmpty()) {
+            event.setQueryStringParameters(toSingleValue(request.params()));
+            event.setMultiValueQueryStringParameters(toMultiValue(request.params()));
+        }
+        if (body.length() > 0) event.setBody(body.toString(StandardCharsets.UTF_8));
+        if (request.remoteAddress() != null) {
+            event.setRequestContext(new APIGatewayProxyRequestEvent.ProxyRequestContext()
+                    .withIdentity(new APIGatewayProxyRequestEvent.RequestIdentity().withSourceIp(request.remoteAddress().host())));
+        }
+        return event;
+    }
+
+    private void write(HttpServerResponse response, AsyncResult<APIGatewayProxyResponseEvent> result) {
+        if (response.closed()) return;
+
+        if (result.failed()) {
+            log.error("request failed", result.cause());
+            response.setStatusCode(500).end();
+            return;
+        }
+
+        APIGatewayProxyResponseEvent event = result.result();
+        response.setStatusCode(event.getStatusCode());
+        if (event.getHeaders() != null) {
+            event.getHeaders().forEach((k, v) -> {
+                if (!k.startsWith(":") && !RESTRICTED_HEADERS.contains(k.toLowerCase())) response.putHeader(k, v);
+            });
+        }
+        if (event.getBody() != null) {
+            response.end(event.getBody(), StandardCharsets.UTF_8.name());
+        } else {
+            response.end();
+        }
+    }
+
+    private Map<String, String> toSingleValue(MultiMap multiMap) {
+        Map<String, String> map = new HashMap<>();
+        multiMap.forEach(e -> map.put(e.getKey(), e.getValue()));
+        return map;
+    }
+
+    private Map<String, List<String>> toMultiValue(MultiMap multiMap) {
+        Map<String, List<String>> map = new HashMap<>();
+        multiMap.names().forEach(name -> map.put(name, multiMap.getAll(name)));
+        return map;
+    }
+
+}
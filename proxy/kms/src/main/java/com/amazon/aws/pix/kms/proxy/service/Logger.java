@@ -1,65 +1,71 @@
 package com.amazon.aws.pix.kms.proxy.service;
 
 import com.amazon.aws.pix.core.audit.AuditLog;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.HeaderUtil;
 import com.amazon.aws.pix.core.util.PixConstants;
+import com.amazon.aws.pix.core.xml.VerificationResult;
 import com.amazon.aws.pix.kms.proxy.config.Config;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import io.quarkus.runtime.Startup;
-import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
 import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
 import software.amazon.awssdk.services.firehose.FirehoseClient;
 import software.amazon.awssdk.services.firehose.model.PutRecordRequest;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @Startup
-public class Logger {
+public class Logger implements Resource {
 
-    private final FirehoseClient firehoseClient;
-    private final String streamName;
+    private final Config config;
+    private FirehoseClient firehoseClient;
 
     public Logger(Config config) {
-        firehoseClient = FirehoseClient.builder()
-                .region(config.getRegion())
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .httpClientBuilder(UrlConnectionHttpClient.builder())
-                .build();
+        this.config = config;
+        firehoseClient = createFirehoseClient();
+        Core.getGlobalContext().register(this);
+    }
 
-        streamName = config.getAuditStream();
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
     }
 
-    public void log(APIGatewayProxyRequestEvent request, APIGatewayProxyResponseEvent response) {
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        FirehoseClient previous = firehoseClient;
+        firehoseClient = createFirehoseClient();
+        previous.close();
+    }
+
+    public void log(APIGatewayProxyRequestEvent request, APIGatewayProxyResponseEvent response, String tenant, RequestTiming timing, VerificationResult verification) {
 
         AuditLog auditLog = new AuditLog();
 
         auditLog.setRequestMethod(request.getHttpMethod());
         auditLog.setRequestPath(request.getPath());
         auditLog.setRequestBody(request.getBody());
-        auditLog.setRequestHeader(flatList(request.getMultiValueHeaders()));
+        auditLog.setRequestHeader(HeaderUtil.join(request.getMultiValueHeaders()));
 
         auditLog.setResponseStatusCode(response.getStatusCode());
         auditLog.setResponseSignatureValid(isSignatureValid(response));
         auditLog.setResponseBody(response.getBody());
+        if (verification != null) auditLog.setResponseVerification(verification.toMap());
         auditLog.setResponseHeader(response.getHeaders());
 
+        auditLog.setTiming(timing.getDurations());
+
         PutRecordRequest putRecordRequest = PutRecordRequest.builder()
-                .deliveryStreamName(streamName)
+                .deliveryStreamName(config.getAuditStream(tenant))
                 .record(builder -> builder.data(SdkBytes.fromUtf8String(auditLog.toJson())))
                 .build();
 
-        firehoseClient.putRecord(putRecordRequest);
-    }
-
-    private Map<String, String> flatList(Map<String, List<String>> map) {
-        if (map == null) return null;
-        return map.entrySet().stream().collect(Collectors.toMap(
-                e -> e.getKey(),
-                e -> String.join(", ", e.getValue())
-        ));
+        try (RequestTiming.Stage stage = timing.start(RequestTiming.AUDIT)) {
+            firehoseClient.putRecord(putRecordRequest);
+        }
     }
 
     private String isSignatureValid(APIGatewayProxyResponseEvent response) {
@@ -67,4 +73,12 @@ public class Logger {
         return response.getHeaders().get(PixConstants.PIX_HEADER_SIGNATURE_VALID);
     }
 
+    private FirehoseClient createFirehoseClient() {
+        return FirehoseClient.builder()
+                .region(config.getRegion())
+                .credentialsProvider(config.getCredentialsProvider())
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .build();
+    }
+
 }
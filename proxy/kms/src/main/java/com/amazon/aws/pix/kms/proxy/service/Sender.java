@@ -1,43 +1,172 @@
 package com.amazon.aws.pix.kms.proxy.service;
 
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import com.amazon.aws.pix.core.concurrent.CircuitBreaker;
+import com.amazon.aws.pix.core.concurrent.CircuitBreakerOpenException;
+import com.amazon.aws.pix.core.concurrent.Deadline;
+import com.amazon.aws.pix.core.concurrent.LatencyTracker;
+import com.amazon.aws.pix.core.concurrent.SingleFlight;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.HeaderUtil;
 import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.util.TenantUtil;
+import com.amazon.aws.pix.core.xml.VerificationResult;
 import com.amazon.aws.pix.kms.proxy.config.Config;
+import com.amazon.aws.pix.kms.proxy.http.BoundedBodyHandler;
+import com.amazon.aws.pix.kms.proxy.http.PayloadTooLargeException;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import io.quarkus.runtime.Startup;
+import lombok.Getter;
 import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import lombok.Value;
 
 import javax.net.ssl.KeyManagerFactory;
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.URI;
+import java.net.UnknownHostException;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
 import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_PREFIX;
 
+@Slf4j
 @Startup
-public class Sender {
+public class Sender implements Resource {
 
     private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "date", "expect", "from", "host", "upgrade", "via", "warning");
 
-    private final HttpClient httpClient;
-    private final String endpoint;
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "pix-kms-dns-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Config config;
+    private final Map<String, Upstream> upstreams = new ConcurrentHashMap<>();
+    /**
+     * Null when disabled. The permits are taken by the caller before signing, and released here after the upstream call.
+     */
+    @Getter
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final HttpResponse.BodyHandler<String> bodyHandler;
+    private final LongAdder responseRejected;
+    private final SingleFlight<String, Verified> singleFlight;
+    private final LongAdder retried;
+    private final LongAdder hedged;
+    private final LongAdder dnsChanged;
 
     public Sender(Config config) {
-        httpClient = createHttpClient(config);
-        endpoint = config.getBcbEndpoint();
+        this.config = config;
+        getUpstream(TenantUtil.DEFAULT_TENANT);
+        bodyHandler = config.getMaxResponseBytes() > 0 ? new BoundedBodyHandler(config.getMaxResponseBytes()) : HttpResponse.BodyHandlers.ofString();
+        responseRejected = Metrics.counter(String.format("pix.size.%s.response.rejected", config.getRouteName()));
+        // a Lambda instance handles one request at a time, only the server has concurrent requests to limit
+        limiter = config.isServerEnabled() ? new AdaptiveConcurrencyLimiter(config.getRouteName(), config.getLimitInitial(), config.getLimitMin(), config.getLimitMax()) : null;
+        singleFlight = config.isCoalescingEnabled() ? new SingleFlight<>(config.getRouteName(), config.getCoalescingCacheTtl(), this::isCacheable) : null;
+        retried = Metrics.counter(String.format("pix.upstream.%s.retried", config.getRouteName()));
+        hedged = Metrics.counter(String.format("pix.upstream.%s.hedged", config.getRouteName()));
+        dnsChanged = Metrics.counter(String.format("pix.upstream.%s.dns-changed", config.getRouteName()));
+        long refreshMillis = config.getDnsRefresh().toMillis();
+        if (refreshMillis > 0) REFRESHER.scheduleWithFixedDelay(this::refreshUpstreams, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+        Core.getGlobalContext().register(this);
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+    }
+
+    /**
+     * Pooled connections don't survive a restore and the TLS state must not be shared between restored instances,
+     * so the clients are rebuilt with new SSL contexts.
+     */
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        upstreams.clear();
+        getUpstream(TenantUtil.DEFAULT_TENANT);
+    }
+
+    private Upstream getUpstream(String tenant) {
+        return upstreams.computeIfAbsent(tenant, this::createUpstream);
+    }
+
+    /**
+     * The pooled connections stay on the addresses the host had when they were opened, so the client is replaced when
+     * the host resolves to other addresses. Runs on the refresher thread, off the request path, so only one client is
+     * built per change.
+     */
+    private void refreshUpstreams() {
+        upstreams.forEach((tenant, upstream) -> {
+            try {
+                Set<String> addresses = resolve(upstream.getEndpoint(), upstream.getAddresses());
+                if (addresses.equals(upstream.getAddresses())) return;
+                Upstream refreshed = new Upstream(createHttpClient(tenant), upstream.getEndpoint(), upstream.getBreaker(), upstream.getLatency(), addresses);
+                if (upstreams.replace(tenant, upstream, refreshed)) dnsChanged.increment();
+            } catch (RuntimeException e) {
+                // keeps the current client, the next refresh tries again
+                log.warn("DNS refresh failed for {}", upstream.getEndpoint(), e);
+            }
+        });
+    }
+
+    private Upstream createUpstream(String tenant) {
+        String name = String.format("%s.%s", config.getRouteName(), tenant);
+        String endpoint = config.getBcbEndpoint(tenant);
+        return new Upstream(
+                createHttpClient(tenant),
+                endpoint,
+                new CircuitBreaker(name, config.getBreakerFailureRate(), config.getBreakerWindow(), config.getBreakerMinimumCalls(), config.getBreakerOpenDuration()),
+                config.isHedgeEnabled() ? new LatencyTracker(name, config.getHedgePercentile(), config.getHedgeWindow()) : null,
+                resolve(endpoint, Set.of())
+        );
+    }
+
+    private Set<String> resolve(String endpoint, Set<String> current) {
+        try {
+            return Arrays.stream(InetAddress.getAllByName(URI.create("https://" + endpoint).getHost()))
+                    .map(InetAddress::getHostAddress)
+                    .collect(Collectors.toSet());
+        } catch (UnknownHostException e) {
+            return current;
+        }
     }
 
     @SneakyThrows
-    private HttpClient createHttpClient(Config config) {
-        KeyStore keyStore = KeyStoreUtil.generateKeyStore("pix", config.getMtlsPrivateKey(), config.getMtlsCertificate());
-        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", config.getBcbMtlsCertificate());
+    private HttpClient createHttpClient(String tenant) {
+        KeyStore keyStore = KeyStoreUtil.generateKeyStore("pix", config.getMtlsPrivateKey(tenant), config.getMtlsCertificate(tenant));
+        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", config.getBcbMtlsCertificate(tenant));
 
         TrustManagerFactory trustManagerFactory = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
         trustManagerFactory.init(trustStore);
@@ -46,21 +175,94 @@ public class Sender {
         keyManagerFactory.init(keyStore, null);
 
         SSLContext sslContext = SSLContext.getInstance("TLSv1.2");
-        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), null);
+        sslContext.init(keyManagerFactory.getKeyManagers(), trustManagerFactory.getTrustManagers(), new SecureRandom());
 
         return HttpClient.newBuilder().sslContext(sslContext).build();
     }
 
     public APIGatewayProxyResponseEvent send(APIGatewayProxyRequestEvent request) {
+        return setPixHeaders(request, exchange(request, TenantUtil.DEFAULT_TENANT, Deadline.after(config.getUpstreamTimeout()), RequestTiming.NONE));
+    }
+
+    /**
+     * @param permit the concurrency limit permit of the request, released with the upstream round trip time or, when
+     *               the request joins a call already in flight, without a sample.
+     * @param verifier verifies the upstream response once, the requests joining the call get the same verification.
+     */
+    public Verified send(APIGatewayProxyRequestEvent request, String tenant, Optional<AdaptiveConcurrencyLimiter.Permit> permit,
+                         Function<APIGatewayProxyResponseEvent, VerificationResult> verifier, Deadline deadline, RequestTiming timing) {
+        if (singleFlight == null || !"GET".equalsIgnoreCase(request.getHttpMethod())) {
+            APIGatewayProxyResponseEvent response = exchange(request, tenant, permit, deadline, timing);
+            VerificationResult verification = verifier.apply(response);
+            return new Verified(setPixHeaders(request, response), verification);
+        }
+
+        Verified shared;
         try {
-            HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder().uri(new URI(String.format("https://%s/%s", endpoint, request.getPath())));
+            shared = singleFlight.execute(coalescingKey(request, tenant), () -> {
+                APIGatewayProxyResponseEvent response = exchange(request, tenant, permit, deadline, timing);
+                return new Verified(response, verifier.apply(response));
+            });
+        } finally {
+            permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::ignore);
+        }
+
+        APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+        response.setStatusCode(shared.getResponse().getStatusCode());
+        response.setBody(shared.getResponse().getBody());
+        response.setHeaders(shared.getResponse().getHeaders() != null ? new HashMap<>(shared.getResponse().getHeaders()) : new HashMap<>());
+        return new Verified(setPixHeaders(request, response), shared.getVerification());
+    }
+
+    private APIGatewayProxyResponseEvent exchange(APIGatewayProxyRequestEvent request, String tenant, Optional<AdaptiveConcurrencyLimiter.Permit> permit, Deadline deadline, RequestTiming timing) {
+        permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::startSample);
+        try {
+            Upstream upstream = getUpstream(tenant);
+            HttpRequest.Builder httpRequestBuilder = HttpRequest.newBuilder().uri(new URI(String.format("https://%s/%s", upstream.getEndpoint(), request.getPath())));
             setHeaders(request, httpRequestBuilder);
             setMethodAndBody(request, httpRequestBuilder);
 
-            HttpResponse<String> httpResponse = httpClient.send(httpRequestBuilder.build(), HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> httpResponse;
+            try (RequestTiming.Stage stage = timing.start(RequestTiming.UPSTREAM)) {
+                httpResponse = send(upstream, httpRequestBuilder, "GET".equalsIgnoreCase(request.getHttpMethod()), deadline);
+            }
+            if (httpResponse.statusCode() >= 500) {
+                permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::dropped);
+            } else {
+                permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::success);
+            }
             return getResponse(httpResponse);
 
         } catch (Exception e) {
+            if (isTooLarge(e)) {
+                permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::ignore);
+                responseRejected.increment();
+
+                APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+                response.setStatusCode(502);
+                response.setBody("Response too large");
+                return response;
+            }
+
+            if (e instanceof CircuitBreakerOpenException) {
+                permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::ignore);
+
+                APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+                response.setStatusCode(503);
+                response.setBody("Circuit breaker open");
+                return response;
+            }
+
+            if (e instanceof HttpTimeoutException) {
+                permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::dropped);
+
+                APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+                response.setStatusCode(504);
+                response.setBody("Upstream timeout");
+                return response;
+            }
+
+            permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::dropped);
             e.printStackTrace();
 
             APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
@@ -70,6 +272,126 @@ public class Sender {
         }
     }
 
+    /**
+     * Sends the request within the deadline. Idempotent requests are retried on errors and 5xx responses, and hedged
+     * when enabled.
+     */
+    private HttpResponse<String> send(Upstream upstream, HttpRequest.Builder httpRequestBuilder, boolean idempotent, Deadline deadline) throws IOException, InterruptedException {
+        int maxRetries = idempotent ? config.getMaxRetries() : 0;
+        for (int attempt = 0; ; attempt++) {
+            if (deadline.isExpired()) throw new HttpTimeoutException("Deadline exceeded");
+            HttpRequest httpRequest = httpRequestBuilder.timeout(deadline.remaining()).build();
+
+            try {
+                HttpResponse<String> httpResponse = idempotent && upstream.getLatency() != null ? hedge(upstream, httpRequest) : call(upstream, httpRequest);
+                if (httpResponse.statusCode() < 500 || attempt >= maxRetries) return httpResponse;
+            } catch (IOException e) {
+                if (attempt >= maxRetries || isTooLarge(e)) throw e;
+            }
+            retried.increment();
+        }
+    }
+
+    private HttpResponse<String> call(Upstream upstream, HttpRequest httpRequest) throws IOException, InterruptedException {
+        CircuitBreaker.Permit permit = upstream.acquire();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<String> httpResponse = upstream.getHttpClient().send(httpRequest, bodyHandler);
+            onResponse(upstream, permit, httpResponse, start);
+            return httpResponse;
+        } catch (Exception e) {
+            onFailure(permit, e);
+            throw e;
+        }
+    }
+
+    private CompletableFuture<HttpResponse<String>> callAsync(Upstream upstream, HttpRequest httpRequest) {
+        CircuitBreaker.Permit permit;
+        try {
+            permit = upstream.acquire();
+        } catch (CircuitBreakerOpenException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        long start = System.nanoTime();
+        return upstream.getHttpClient().sendAsync(httpRequest, bodyHandler).whenComplete((httpResponse, throwable) -> {
+            if (throwable == null) {
+                onResponse(upstream, permit, httpResponse, start);
+            } else {
+                onFailure(permit, throwable);
+            }
+        });
+    }
+
+    /**
+     * Starts a second request if the first is slower than the latency percentile of the upstream. The first response
+     * below 500 wins.
+     */
+    private HttpResponse<String> hedge(Upstream upstream, HttpRequest httpRequest) throws IOException, InterruptedException {
+        Optional<Duration> delay = upstream.getLatency().get();
+        if (!delay.isPresent()) return call(upstream, httpRequest);
+
+        CompletableFuture<HttpResponse<String>> first = callAsync(upstream, httpRequest);
+        try {
+            return first.get(delay.get().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            hedged.increment();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+
+        CompletableFuture<HttpResponse<String>> second = callAsync(upstream, httpRequest);
+        CompletableFuture<HttpResponse<String>> result = new CompletableFuture<>();
+        AtomicInteger completed = new AtomicInteger();
+        BiConsumer<HttpResponse<String>, Throwable> complete = (httpResponse, throwable) -> {
+            if (throwable == null && httpResponse.statusCode() < 500) {
+                result.complete(httpResponse);
+            } else if (completed.incrementAndGet() == 2) {
+                if (throwable == null) result.complete(httpResponse);
+                else result.completeExceptionally(throwable);
+            }
+        };
+        first.whenComplete(complete);
+        second.whenComplete(complete);
+
+        try {
+            return result.get();
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    private void onResponse(Upstream upstream, CircuitBreaker.Permit permit, HttpResponse<String> httpResponse, long start) {
+        if (httpResponse.statusCode() >= 500) {
+            permit.failure();
+            return;
+        }
+        permit.success();
+        if (upstream.getLatency() != null) upstream.getLatency().record(System.nanoTime() - start);
+    }
+
+    private void onFailure(CircuitBreaker.Permit permit, Throwable throwable) {
+        if (isTooLarge(throwable) || throwable instanceof InterruptedException) {
+            permit.ignore();
+        } else {
+            permit.failure();
+        }
+    }
+
+    private IOException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null ? e.getCause().getCause() : e.getCause();
+        if (cause instanceof IOException) return (IOException) cause;
+        if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+        return new IOException(cause);
+    }
+
+    // HttpClient.send rethrows the body subscriber failure wrapped in a new IOException
+    private boolean isTooLarge(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof PayloadTooLargeException) return true;
+        }
+        return false;
+    }
+
     private void setHeaders(APIGatewayProxyRequestEvent request, HttpRequest.Builder httpRequestBuilder) {
         if (request.getHeaders() != null) {
             request.getMultiValueHeaders().forEach((k, l) -> {
@@ -95,23 +417,65 @@ public class Sender {
 
         response.setStatusCode(httpResponse.statusCode());
         response.setBody(httpResponse.body());
-        response.setHeaders(
-                httpResponse.headers().map().entrySet().stream()
-                        .collect(Collectors.toMap(e -> e.getKey(), e -> String.join(", ", e.getValue())))
-        );
+        response.setHeaders(HeaderUtil.join(httpResponse.headers().map()));
 
-        Map<String, String> pixRequestHeaders = httpResponse.request().headers().map().entrySet().stream()
-                .filter(e -> e.getKey().startsWith(PIX_HEADER_PREFIX))
-                .collect(Collectors.toMap(e -> e.getKey(), e -> String.join(", ", e.getValue())));
+        return response;
+    }
 
-        response.getHeaders().putAll(pixRequestHeaders);
+    private APIGatewayProxyResponseEvent setPixHeaders(APIGatewayProxyRequestEvent request, APIGatewayProxyResponseEvent response) {
+        if (request.getMultiValueHeaders() == null) return response;
+        if (response.getHeaders() == null) response.setHeaders(new HashMap<>());
+
+        response.getHeaders().putAll(HeaderUtil.joinWithPrefix(request.getMultiValueHeaders(), PIX_HEADER_PREFIX));
 
         return response;
     }
 
+    private String coalescingKey(APIGatewayProxyRequestEvent request, String tenant) {
+        StringBuilder key = new StringBuilder(tenant).append(' ').append(request.getHttpMethod()).append(' ').append(request.getPath());
+        if (request.getMultiValueQueryStringParameters() != null) {
+            key.append('?').append(new TreeMap<>(request.getMultiValueQueryStringParameters()));
+        }
+        if (request.getMultiValueHeaders() != null) {
+            request.getMultiValueHeaders().entrySet().stream()
+                    .filter(e -> e.getKey().toUpperCase().startsWith("PI-"))
+                    .map(e -> e.getKey().toUpperCase() + "=" + e.getValue())
+                    .sorted()
+                    .forEach(h -> key.append('|').append(h));
+        }
+        return key.toString();
+    }
+
+    private boolean isCacheable(Verified verified) {
+        APIGatewayProxyResponseEvent response = verified.getResponse();
+        return response.getStatusCode() != null && response.getStatusCode() == 200
+                && verified.getVerification() != null && verified.getVerification().isValid();
+    }
+
     private boolean isNotBlank(String value) {
         return value != null && !value.trim().isEmpty();
     }
 
+    /**
+     * The upstream response with the verification of its signature, null when there was nothing to verify.
+     */
+    @Value
+    public static class Verified {
+        APIGatewayProxyResponseEvent response;
+        VerificationResult verification;
+    }
+
+    @Value
+    private static class Upstream {
+        HttpClient httpClient;
+        String endpoint;
+        CircuitBreaker breaker;
+        LatencyTracker latency;
+        Set<String> addresses;
+
+        CircuitBreaker.Permit acquire() {
+            return breaker.tryAcquire().orElseThrow(() -> new CircuitBreakerOpenException(endpoint));
+        }
+    }
 
 }
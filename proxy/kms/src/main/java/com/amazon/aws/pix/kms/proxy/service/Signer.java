@@ -1,62 +1,150 @@
 package com.amazon.aws.pix.kms.proxy.service;
 
+import com.amazon.aws.pix.core.timing.RequestTiming;
 import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.util.TenantUtil;
 import com.amazon.aws.pix.core.xml.Iso20022XmlSigner;
+import com.amazon.aws.pix.core.xml.VerificationResult;
+import com.amazon.aws.pix.core.xml.XmlSignatureAlgorithm;
 import com.amazon.aws.pix.core.xml.XmlSigner;
+import com.amazon.aws.pix.kms.proxy.client.ResilientKmsClient;
 import com.amazon.aws.pix.kms.proxy.config.Config;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import io.quarkus.runtime.Startup;
 import lombok.extern.slf4j.Slf4j;
-import software.amazon.awssdk.auth.credentials.EnvironmentVariableCredentialsProvider;
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+import software.amazon.awssdk.core.retry.RetryPolicy;
 import software.amazon.awssdk.http.urlconnection.UrlConnectionHttpClient;
+import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.kms.KmsClient;
 import software.amazon.awssdk.services.kms.jce.provider.KmsProvider;
+import software.amazon.awssdk.services.kms.jce.provider.ec.KmsECKeyFactory;
 import software.amazon.awssdk.services.kms.jce.provider.rsa.KmsRSAKeyFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.security.PrivateKey;
 import java.security.Security;
 import java.security.cert.X509Certificate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_SIGNATURE_VALID;
 
 @Slf4j
 @Startup
-public class Signer {
+public class Signer implements Resource {
 
-    private final XmlSigner xmlSigner;
+    private final Config config;
+    private final Map<String, XmlSigner> xmlSigners = new ConcurrentHashMap<>();
+    private KmsClient kmsClient;
+    private KmsProvider kmsProvider;
 
     public Signer(Config config) {
-        KmsClient kmsClient = KmsClient.builder()
-                .region(config.getRegion())
-                .credentialsProvider(EnvironmentVariableCredentialsProvider.create())
-                .httpClientBuilder(UrlConnectionHttpClient.builder())
-                .build();
+        this.config = config;
+        registerKmsProvider();
+        getXmlSigner(TenantUtil.DEFAULT_TENANT);
+        Core.getGlobalContext().register(this);
+    }
 
-        Security.addProvider(new KmsProvider(kmsClient));
+    /**
+     * Runs a sign/verify round so the snapshot has the XML signature, canonicalization and KMS code paths loaded.
+     */
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        if (!config.isPrimingEnabled()) return;
+
+        try {
+            XmlSigner xmlSigner = createXmlSigner(TenantUtil.DEFAULT_TENANT, config.getSignatureCertificate(TenantUtil.DEFAULT_TENANT));
+            String xml = readResource(config.isIso20022() ? "priming/spi.xml" : "priming/dict.xml");
+            if (!xmlSigner.verify(xmlSigner.sign(xml))) {
+                log.warn("priming sign/verify round failed");
+            }
+        } catch (Exception e) {
+            log.warn("priming sign/verify round failed", e);
+        }
+    }
 
-        PrivateKey privateKey = KmsRSAKeyFactory.getPrivateKey(config.getSignatureKeyId());
-        X509Certificate certificate = KeyStoreUtil.getCertificate(config.getSignatureCertificate());
-        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", config.getBcbSignatureCertificate());
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        KmsClient previous = kmsClient;
+        registerKmsProvider();
+        previous.close();
 
-        xmlSigner = config.isIso20022() ? new Iso20022XmlSigner(privateKey, certificate, trustStore) : new XmlSigner(privateKey, certificate, trustStore);
+        xmlSigners.clear();
+        getXmlSigner(TenantUtil.DEFAULT_TENANT);
     }
 
-    public void sign(APIGatewayProxyRequestEvent request) {
+    public void sign(APIGatewayProxyRequestEvent request, String tenant, RequestTiming timing) {
         if (isNotBlank(request.getBody())) {
-            request.setBody(xmlSigner.sign(request.getBody()));
+            request.setBody(getXmlSigner(tenant).sign(request.getBody(), timing));
         }
     }
 
-    public void verify(APIGatewayProxyResponseEvent response) {
+    public VerificationResult verify(APIGatewayProxyResponseEvent response, String tenant, RequestTiming timing) {
         if (isSuccessfulResponse(response.getStatusCode()) && isNotBlank(response.getBody())) {
-            if (xmlSigner.verify(response.getBody())) {
+            VerificationResult result = getXmlSigner(tenant).validate(response.getBody(), timing);
+            if (result.isValid()) {
                 response.getHeaders().put(PIX_HEADER_SIGNATURE_VALID, "true");
             } else {
                 response.setStatusCode(500);
                 response.getHeaders().put(PIX_HEADER_SIGNATURE_VALID, "false");
             }
+            return result;
+        }
+        return null;
+    }
+
+    private XmlSigner getXmlSigner(String tenant) {
+        return xmlSigners.computeIfAbsent(tenant, this::createXmlSigner);
+    }
+
+    private void registerKmsProvider() {
+        Map<Region, KmsClient> clients = new LinkedHashMap<>();
+        config.getKmsRegions().forEach(region -> clients.put(region, createKmsClient(region)));
+        kmsClient = new ResilientKmsClient(clients, config.getKmsRateLimit(), config.getKmsBurst(), config.getKmsMaxWait(), config.getKmsMaxRetries(), config.getKmsHedgeDelay());
+
+        if (kmsProvider != null) Security.removeProvider(kmsProvider.getName());
+        kmsProvider = new KmsProvider(kmsClient);
+        Security.addProvider(kmsProvider);
+    }
+
+    /**
+     * Retries are done by {@link ResilientKmsClient}, which can move them to another Region.
+     */
+    private KmsClient createKmsClient(Region region) {
+        return KmsClient.builder()
+                .region(region)
+                .credentialsProvider(config.getCredentialsProvider())
+                .httpClientBuilder(UrlConnectionHttpClient.builder())
+                .overrideConfiguration(builder -> builder.retryPolicy(RetryPolicy.none()))
+                .build();
+    }
+
+    private XmlSigner createXmlSigner(String tenant) {
+        return createXmlSigner(tenant, config.getBcbSignatureCertificate(tenant));
+    }
+
+    private XmlSigner createXmlSigner(String tenant, String trustedCertificate) {
+        XmlSignatureAlgorithm algorithm = config.getSignatureAlgorithm();
+        PrivateKey privateKey = "EC".equals(algorithm.getKeyAlgorithm())
+                ? KmsECKeyFactory.getPrivateKey(config.getSignatureKeyId(tenant))
+                : KmsRSAKeyFactory.getPrivateKey(config.getSignatureKeyId(tenant));
+        X509Certificate certificate = KeyStoreUtil.getCertificate(config.getSignatureCertificate(tenant));
+        KeyStore trustStore = KeyStoreUtil.generateTrustStore("bcb", trustedCertificate);
+
+        return config.isIso20022() ? new Iso20022XmlSigner(privateKey, certificate, trustStore, algorithm) : new XmlSigner(privateKey, certificate, trustStore, algorithm);
+    }
+
+    private String readResource(String name) throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(name)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
         }
     }
 
@@ -0,0 +1,45 @@
+package com.amazon.aws.pix.kms.proxy.service;
+
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.xml.Iso20022Validator;
+import com.amazon.aws.pix.core.xml.XmlValidationException;
+import com.amazon.aws.pix.kms.proxy.config.Config;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import io.quarkus.runtime.Startup;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+@Slf4j
+@Startup
+public class Validator {
+
+    private final Iso20022Validator validator;
+    private final LongAdder rejected;
+
+    public Validator(Config config) {
+        validator = config.isValidationEnabled()
+                ? new Iso20022Validator(config.getValidationMaxBytes(), config.getValidationRoots(), config.getValidationNamespacePrefix())
+                : null;
+        rejected = Metrics.counter(String.format("pix.validation.%s.rejected", config.getRouteName()));
+    }
+
+    /**
+     * @return the reason the request was rejected, or empty if it can be signed.
+     */
+    public Optional<String> validate(APIGatewayProxyRequestEvent request) {
+        if (validator == null || request.getBody() == null || request.getBody().isEmpty()) return Optional.empty();
+
+        try {
+            validator.validate(request.getBody().getBytes(StandardCharsets.UTF_8));
+            return Optional.empty();
+        } catch (XmlValidationException e) {
+            log.warn("invalid request: {}", e.getMessage());
+            rejected.increment();
+            return Optional.of(e.getMessage());
+        }
+    }
+
+}
@@ -1,28 +1,115 @@
 package com.amazon.aws.pix.kms.proxy.sync;
 
+import com.amazon.aws.pix.core.concurrent.AdaptiveConcurrencyLimiter;
+import com.amazon.aws.pix.core.concurrent.Deadline;
+import com.amazon.aws.pix.core.metrics.Metrics;
+import com.amazon.aws.pix.core.timing.RequestTiming;
+import com.amazon.aws.pix.core.util.HeaderUtil;
+import com.amazon.aws.pix.core.util.TenantUtil;
+import com.amazon.aws.pix.kms.proxy.config.Config;
 import com.amazon.aws.pix.kms.proxy.service.Logger;
 import com.amazon.aws.pix.kms.proxy.service.Sender;
 import com.amazon.aws.pix.kms.proxy.service.Signer;
+import com.amazon.aws.pix.kms.proxy.service.Validator;
 import com.amazonaws.services.lambda.runtime.Context;
 import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import lombok.AllArgsConstructor;
 
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Optional;
+
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_TENANT;
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_TIMEOUT;
+import static com.amazon.aws.pix.core.util.PixConstants.PIX_HEADER_TIMING;
+
 @AllArgsConstructor
 public class ProxyHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
 
+    private final Validator validator;
     private final Signer signer;
     private final Sender sender;
     private final Logger logger;
+    private final Config config;
 
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
-        signer.sign(request);
-        APIGatewayProxyResponseEvent response = sender.send(request);
-        signer.verify(response);
-        logger.log(request, response);
+        Deadline deadline = Deadline.of(HeaderUtil.get(request.getHeaders(), PIX_HEADER_TIMEOUT), config.getUpstreamTimeout());
+        String tenant = getTenant(request);
+        if (tenant == null) {
+            return errorResponse(404, "Unknown tenant");
+        }
+        if (!config.isAllowed(tenant, getCaller(request))) {
+            return errorResponse(403, "Tenant not allowed");
+        }
+        request.setPath(TenantUtil.removeTenantPath(request.getPath()));
+
+        if (isTooLarge(request.getBody())) {
+            Metrics.counter(String.format("pix.size.%s.request.rejected", config.getRouteName())).increment();
+            return errorResponse(413, "Request too large");
+        }
+
+        Optional<String> invalid = validator.validate(request);
+        if (invalid.isPresent()) {
+            return errorResponse(400, invalid.get());
+        }
+
+        // before any KMS work, so an overloaded proxy sheds the request without signing it
+        AdaptiveConcurrencyLimiter limiter = sender.getLimiter();
+        Optional<AdaptiveConcurrencyLimiter.Permit> permit = limiter != null ? limiter.tryAcquire() : Optional.empty();
+        if (limiter != null && !permit.isPresent()) {
+            return errorResponse(config.getLimitRejectedStatusCode(), "Concurrency limit exceeded");
+        }
+
+        RequestTiming timing = new RequestTiming(String.format("pix-proxy %s", config.getRouteName()));
+        try {
+            signer.sign(request, tenant, timing);
+            Sender.Verified verified = sender.send(request, tenant, permit, r -> signer.verify(r, tenant, timing), deadline, timing);
+            APIGatewayProxyResponseEvent response = verified.getResponse();
+            logger.log(request, response, tenant, timing, verified.getVerification());
+
+            if (config.isTimingHeaderEnabled()) {
+                if (response.getHeaders() == null) response.setHeaders(new HashMap<>());
+                response.getHeaders().put(PIX_HEADER_TIMING, timing.toHeader());
+            }
+            return response;
+        } finally {
+            // no-op once the sender released it, otherwise the request failed before BACEN
+            permit.ifPresent(AdaptiveConcurrencyLimiter.Permit::ignore);
+            timing.end();
+        }
+    }
+
+    private boolean isTooLarge(String body) {
+        int maxBytes = config.getMaxRequestBytes();
+        if (body == null || maxBytes <= 0 || body.length() <= maxBytes / 3) return false;
+        return body.length() > maxBytes || body.getBytes(StandardCharsets.UTF_8).length > maxBytes;
+    }
+
+    private APIGatewayProxyResponseEvent errorResponse(int statusCode, String body) {
+        APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+        response.setStatusCode(statusCode);
+        response.setBody(body);
         return response;
     }
 
+    /**
+     * The source address seen by API Gateway, or by {@code ProxyServer} on the connection.
+     */
+    private String getCaller(APIGatewayProxyRequestEvent request) {
+        if (request.getRequestContext() == null || request.getRequestContext().getIdentity() == null) return null;
+        return request.getRequestContext().getIdentity().getSourceIp();
+    }
+
+    private String getTenant(APIGatewayProxyRequestEvent request) {
+        String header = HeaderUtil.get(request.getHeaders(), PIX_HEADER_TENANT);
+        try {
+            return TenantUtil.getTenant(header, request.getPath());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
 }
@@ -0,0 +1,138 @@
+package com.amazon.aws.pix.kms.proxy.server;
+
+import com.amazon.aws.pix.core.util.KeyStoreUtil;
+import com.amazon.aws.pix.core.xml.XmlSigner;
+import com.amazon.aws.pix.kms.proxy.config.Config;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ProxyServerTest {
+
+    private XmlSigner xmlSigner;
+    private Vertx vertx;
+    private ProxyServer proxyServer;
+    private int port;
+
+    @BeforeEach
+    public void start() throws Exception {
+        KeyStore keyStore = KeyStoreUtil.getKeyStoreFromResource("security/client.jks", "secret");
+        KeyStore.PrivateKeyEntry privateKeyEntry = (KeyStore.PrivateKeyEntry) keyStore.getEntry("client", new KeyStore.PasswordProtection("secret".toCharArray()));
+        xmlSigner = new XmlSigner(privateKeyEntry.getPrivateKey(), (X509Certificate) privateKeyEntry.getCertificate(), keyStore);
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+
+        // signs the request and answers with it, as BACEN answers with a signed message
+        vertx = Vertx.vertx();
+        proxyServer = new ProxyServer(new TestConfig(port), vertx, (request, context) -> {
+            Map<String, String> headers = new HashMap<>();
+            headers.put("Content-Type", "application/xml");
+            headers.put("pix-caller", request.getRequestContext().getIdentity().getSourceIp());
+            headers.put("pix-path", request.getPath());
+
+            APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
+            response.setStatusCode(200);
+            response.setHeaders(headers);
+            response.setBody(xmlSigner.sign(request.getBody()));
+            return response;
+        });
+        proxyServer.onStart(null);
+    }
+
+    @AfterEach
+    public void stop() {
+        proxyServer.onStop(null);
+        vertx.close();
+    }
+
+    @Test
+    public void testSignedRoundTrip() throws Exception {
+        String xml;
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream("xml/test.xml")) {
+            xml = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(String.format("http://127.0.0.1:%d/api/v1/entries", port)))
+                .header("Content-Type", "application/xml")
+                .POST(HttpRequest.BodyPublishers.ofString(xml))
+                .build());
+
+        Assertions.assertEquals(200, response.statusCode());
+        Assertions.assertEquals("127.0.0.1", response.headers().firstValue("pix-caller").orElse(null));
+        Assertions.assertEquals("/api/v1/entries", response.headers().firstValue("pix-path").orElse(null));
+        Assertions.assertTrue(xmlSigner.verify(response.body()));
+    }
+
+    /**
+     * The server starts listening asynchronously.
+     */
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            } catch (ConnectException e) {
+                if (attempt >= 50) throw e;
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static class TestConfig extends Config {
+
+        private final int port;
+
+        private TestConfig(int port) {
+            this.port = port;
+        }
+
+        @Override
+        public boolean isServerEnabled() {
+            return true;
+        }
+
+        @Override
+        public int getServerPort() {
+            return port;
+        }
+
+        @Override
+        public int getServerWorkerPoolSize() {
+            return 4;
+        }
+
+        @Override
+        public boolean isVirtualThreadsEnabled() {
+            return false;
+        }
+
+        @Override
+        public String getRouteName() {
+            return "dict";
+        }
+
+        @Override
+        public int getMaxRequestBytes() {
+            return 65536;
+        }
+    }
+
+}